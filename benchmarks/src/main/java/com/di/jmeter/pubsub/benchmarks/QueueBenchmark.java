@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.benchmarks;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.di.jmeter.pubsub.utils.MpmcRingBuffer;
+
+/**
+ * Compares the subscriber queue implementations under the access pattern of a
+ * test: pull callbacks offer without blocking, sampler threads poll with a
+ * timeout. The scores of interest are the offered and polled counters, failed
+ * offers (queue full) and empty polls are reported next to them.
+ *
+ * Run with: java -jar target/benchmarks.jar QueueBenchmark -t max
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+
+	private static final Object MESSAGE = new Object();
+
+	@Param({ "linkedDeque", "ringBuffer-spin", "ringBuffer-yield", "ringBuffer-park" })
+	public String queue;
+
+	@Param({ "100000" })
+	public int capacity;
+
+	private BlockingQueue<Object> messages;
+
+	@Setup(Level.Iteration)
+	public void createQueue() {
+		if (queue.startsWith("ringBuffer-")) {
+			messages = new MpmcRingBuffer<>(capacity, queue.substring("ringBuffer-".length()));
+		} else {
+			messages = new LinkedBlockingDeque<>(capacity);
+		}
+	}
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Counters {
+		public long offered;
+		public long offerFailed;
+		public long polled;
+		public long pollEmpty;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			offered = offerFailed = polled = pollEmpty = 0;
+		}
+	}
+
+	@Benchmark
+	@Group("oneToOne")
+	@GroupThreads(1)
+	public void oneToOneOffer(Counters counters) {
+		offer(counters);
+	}
+
+	@Benchmark
+	@Group("oneToOne")
+	@GroupThreads(1)
+	public void oneToOnePoll(Counters counters) throws InterruptedException {
+		poll(counters);
+	}
+
+	@Benchmark
+	@Group("manyToMany")
+	@GroupThreads(4)
+	public void manyToManyOffer(Counters counters) {
+		offer(counters);
+	}
+
+	@Benchmark
+	@Group("manyToMany")
+	@GroupThreads(8)
+	public void manyToManyPoll(Counters counters) throws InterruptedException {
+		poll(counters);
+	}
+
+	private void offer(Counters counters) {
+		if (messages.offer(MESSAGE)) {
+			counters.offered++;
+		} else {
+			counters.offerFailed++;
+		}
+	}
+
+	private void poll(Counters counters) throws InterruptedException {
+		if (messages.poll(1, TimeUnit.MILLISECONDS) != null) {
+			counters.polled++;
+		} else {
+			counters.pollEmpty++;
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.codec;
+
+import java.io.IOException;
+
+import com.google.protobuf.ByteString;
+
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
+
+/**
+ * Base for the pure-Java block codecs of aircompressor. Compressor, decompressor
+ * and the staging buffers are kept per thread and reused for every message.
+ */
+abstract class AirliftCodec implements PayloadCodec {
+
+	private static final int INITIAL_BUFFER = 64 * 1024;
+	private static final int MAX_RETAINED_BUFFER = 4 * 1024 * 1024;
+	// Upper bound for the length declared by an encoded block, a corrupt header must not force a huge allocation
+	protected static final int MAX_DECOMPRESSED_LENGTH = 64 * 1024 * 1024;
+
+	private final ThreadLocal<Compressor> compressors = ThreadLocal.withInitial(this::newCompressor);
+	private final ThreadLocal<Decompressor> decompressors = ThreadLocal.withInitial(this::newDecompressor);
+	private final ThreadLocal<byte[][]> buffers = ThreadLocal
+			.withInitial(() -> new byte[][] { new byte[INITIAL_BUFFER], new byte[INITIAL_BUFFER] });
+
+	protected abstract Compressor newCompressor();
+
+	protected abstract Decompressor newDecompressor();
+
+	// Returns the decompressed length stored in the encoded block, at most MAX_DECOMPRESSED_LENGTH
+	protected abstract int decompressedLength(byte[] input, int length) throws IOException;
+
+	// Number of bytes written in front of the compressed block by writeHeader
+	protected int headerLength() {
+		return 0;
+	}
+
+	protected void writeHeader(byte[] output, int uncompressedLength) {
+	}
+
+	@Override
+	public ByteString encode(ByteString data) {
+		Compressor compressor = compressors.get();
+		byte[][] buffer = buffers.get();
+		int length = data.size();
+		byte[] input = grow(buffer, 0, length);
+		data.copyTo(input, 0);
+		int header = headerLength();
+		byte[] output = grow(buffer, 1, header + compressor.maxCompressedLength(length));
+		writeHeader(output, length);
+		int written = compressor.compress(input, 0, length, output, header, output.length - header);
+		ByteString result = ByteString.copyFrom(output, 0, header + written);
+		trim(buffer);
+		return result;
+	}
+
+	@Override
+	public ByteString decode(ByteString data) throws IOException {
+		byte[][] buffer = buffers.get();
+		int length = data.size();
+		byte[] input = grow(buffer, 0, length);
+		data.copyTo(input, 0);
+		int header = headerLength();
+		if (length < header) {
+			throw new IOException(String.format("Truncated %s payload", getName()));
+		}
+		int expected = decompressedLength(input, length);
+		byte[] output = grow(buffer, 1, expected);
+		int produced;
+		try {
+			produced = decompressors.get().decompress(input, header, length - header, output, 0, expected);
+		} catch (RuntimeException e) {
+			throw new IOException(String.format("Malformed %s payload: %s", getName(), e.getMessage()), e);
+		}
+		if (produced != expected) {
+			throw new IOException(String.format("Malformed %s payload: expected %d bytes, got %d", getName(), expected, produced));
+		}
+		ByteString result = ByteString.copyFrom(output, 0, produced);
+		trim(buffer);
+		return result;
+	}
+
+	private static byte[] grow(byte[][] buffer, int index, int capacity) {
+		if (buffer[index].length < capacity) {
+			buffer[index] = new byte[Math.max(capacity, buffer[index].length * 2)];
+		}
+		return buffer[index];
+	}
+
+	private static void trim(byte[][] buffer) {
+		for (int i = 0; i < buffer.length; i++) {
+			if (buffer[i].length > MAX_RETAINED_BUFFER) {
+				buffer[i] = new byte[INITIAL_BUFFER];
+			}
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.codec;
+
+import java.io.IOException;
+
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+
+/**
+ * LZ4 block codec. A raw LZ4 block does not carry its decompressed size, so the
+ * encoded payload starts with it as a 4 byte big-endian integer.
+ */
+public class Lz4Codec extends AirliftCodec {
+
+	@Override
+	public String getName() {
+		return "lz4";
+	}
+
+	@Override
+	protected Compressor newCompressor() {
+		return new Lz4Compressor();
+	}
+
+	@Override
+	protected Decompressor newDecompressor() {
+		return new Lz4Decompressor();
+	}
+
+	@Override
+	protected int headerLength() {
+		return 4;
+	}
+
+	@Override
+	protected void writeHeader(byte[] output, int uncompressedLength) {
+		output[0] = (byte) (uncompressedLength >>> 24);
+		output[1] = (byte) (uncompressedLength >>> 16);
+		output[2] = (byte) (uncompressedLength >>> 8);
+		output[3] = (byte) uncompressedLength;
+	}
+
+	@Override
+	protected int decompressedLength(byte[] input, int length) throws IOException {
+		int size = (input[0] & 0xff) << 24 | (input[1] & 0xff) << 16 | (input[2] & 0xff) << 8 | (input[3] & 0xff);
+		if (size < 0 || size > MAX_DECOMPRESSED_LENGTH) {
+			throw new IOException("Malformed lz4 payload: invalid length " + size);
+		}
+		return size;
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.codec;
+
+import java.io.IOException;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Payload compression codec. Implementations are discovered through
+ * {@link java.util.ServiceLoader} and must be thread-safe.
+ */
+public interface PayloadCodec {
+
+	// Name used in the sampler configuration and in the codec message attribute
+	String getName();
+
+	ByteString encode(ByteString data);
+
+	ByteString decode(ByteString data) throws IOException;
+
+}
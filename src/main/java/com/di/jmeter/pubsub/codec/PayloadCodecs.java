@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.codec;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+
+/**
+ * Registry of the {@link PayloadCodec}s available on the class path.
+ */
+public final class PayloadCodecs {
+
+	public static final String NONE = "none";
+	public static final String GZIP = "gzip";
+
+	private static final Map<String, PayloadCodec> CODECS = load();
+
+	private PayloadCodecs() {
+	}
+
+	private static Map<String, PayloadCodec> load() {
+		Map<String, PayloadCodec> codecs = new TreeMap<>();
+		for (PayloadCodec codec : ServiceLoader.load(PayloadCodec.class, PayloadCodecs.class.getClassLoader())) {
+			codecs.put(codec.getName(), codec);
+		}
+		return Collections.unmodifiableMap(codecs);
+	}
+
+	// Returns the codec, or null for "none" and empty names
+	public static PayloadCodec get(String name) {
+		if (name == null || name.trim().isEmpty() || NONE.equals(name.trim())) {
+			return null;
+		}
+		PayloadCodec codec = CODECS.get(name.trim());
+		if (codec == null) {
+			throw new IllegalArgumentException(String.format("Unknown codec %s, available codecs are %s", name, CODECS.keySet()));
+		}
+		return codec;
+	}
+
+	public static String[] names() {
+		String[] names = new String[CODECS.size() + 1];
+		names[0] = NONE;
+		int i = 1;
+		for (String name : CODECS.keySet()) {
+			names[i++] = name;
+		}
+		return names;
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.codec;
+
+import java.io.IOException;
+
+import io.airlift.compress.Compressor;
+import io.airlift.compress.Decompressor;
+import io.airlift.compress.zstd.ZstdCompressor;
+import io.airlift.compress.zstd.ZstdDecompressor;
+
+public class ZstdCodec extends AirliftCodec {
+
+	@Override
+	public String getName() {
+		return "zstd";
+	}
+
+	@Override
+	protected Compressor newCompressor() {
+		return new ZstdCompressor();
+	}
+
+	@Override
+	protected Decompressor newDecompressor() {
+		return new ZstdDecompressor();
+	}
+
+	@Override
+	protected int decompressedLength(byte[] input, int length) throws IOException {
+		long size;
+		try {
+			size = ZstdDecompressor.getDecompressedSize(input, 0, length);
+		} catch (RuntimeException e) {
+			throw new IOException("Malformed zstd payload: " + e.getMessage(), e);
+		}
+		if (size < 0 || size > MAX_DECOMPRESSED_LENGTH) {
+			throw new IOException("zstd frame does not declare a usable content size: " + size);
+		}
+		return (int) size;
+	}
+
+}
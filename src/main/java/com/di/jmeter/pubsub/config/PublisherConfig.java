@@ -22,9 +22,12 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
 import org.apache.jmeter.config.ConfigElement;
 import org.apache.jmeter.config.ConfigTestElement;
 import org.apache.jmeter.testbeans.TestBean;
@@ -34,10 +37,25 @@ import org.apache.jmeter.threads.JMeterVariables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.di.jmeter.pubsub.utils.CallbackExecutors;
+import com.di.jmeter.pubsub.utils.LatencyRecorder;
+import com.di.jmeter.pubsub.utils.MappedPayloadFeed;
+import com.di.jmeter.pubsub.utils.OrderingKeySequences;
+import com.di.jmeter.pubsub.utils.PublishAckCollector;
+import com.di.jmeter.pubsub.utils.PublisherPool;
+import com.di.jmeter.pubsub.utils.RateProfile;
+import com.di.jmeter.pubsub.utils.RatePublishEngine;
+import com.di.jmeter.pubsub.utils.SequenceTracker;
+import com.di.jmeter.pubsub.utils.TransportSettings;
 import com.google.api.gax.core.CredentialsProvider;
+import com.google.api.gax.core.ExecutorProvider;
 import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.gax.core.FixedExecutorProvider;
+import com.google.api.gax.grpc.ChannelPoolSettings;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.pubsub.v1.TopicAdminSettings;
 import com.google.gson.JsonObject;
 import com.google.pubsub.v1.ProjectTopicName;
 import org.threeten.bp.Duration;
@@ -51,8 +69,12 @@ public class PublisherConfig extends ConfigTestElement
 
 	private static Logger LOGGER = LoggerFactory.getLogger(PublisherConfig.class);
 	private static final long serialVersionUID = 7645049205276507368L;
+	public static final String ACK_LATENCY_SUFFIX = ".publish-ack";
+	public static final String PUBLISH_BLOCKED_SUFFIX = ".publish-blocked";
 
-	private Publisher publisherClient;
+	private PublisherPool publisherPool;
+	private transient ScheduledExecutorService callbackExecutor;
+	private transient RatePublishEngine rateEngine;
 	private transient JsonObject credentials = new JsonObject();
 	private static GoogleCredentials gcpCredentials = null;
 
@@ -73,6 +95,28 @@ public class PublisherConfig extends ConfigTestElement
 	private String batchingElementCountThreshold;
 	private String batchingRequestByteThreshold;
 	private String batchingDelayThreshold;
+	private String latencyLogInterval;
+	private String latencyLogFile;
+	private String clientTopology;
+	private String clientCount;
+	private String clientSelection;
+	private String channelCount;
+	private String maxInboundMessageSize;
+	private String keepAliveTime;
+	private String keepAliveTimeout;
+	private boolean keepAliveWithoutCalls;
+	private boolean grpcCompression;
+	private String compressionBytesThreshold;
+	private String executorMode;
+	private String executorThreads;
+	private String flowControlBehavior;
+	private String maxOutstandingElementCount;
+	private String maxOutstandingRequestBytes;
+	private boolean messageOrdering;
+	private String rateMode;
+	private String targetRate;
+	private String rateProfileFile;
+	private String rateReportInterval;
 
 	// Default Constructor
 	public PublisherConfig() {
@@ -95,28 +139,50 @@ public class PublisherConfig extends ConfigTestElement
 		TestBeanHelper.prepare(this);
 		JMeterVariables variables = getThreadContext().getVariables();
 
-		if (variables.getObject(publisherConnection) != null) {
+		SequenceTracker.clearPublishFailures();
+		if (PublisherPool.get(publisherConnection) != null) {
 			LOGGER.error("PubSub connection is already established and active !!");
 		} else {
 			synchronized (this) {
 				try {
-					Boolean isBatchingEnabled = Boolean.parseBoolean(getBatchingEnabled());
-					BatchingSettings.Builder batchingSettingsBuilder = BatchingSettings.newBuilder()
-							.setIsEnabled(isBatchingEnabled);
-					if (Boolean.TRUE.equals(isBatchingEnabled)) {
-						batchingSettingsBuilder.setElementCountThreshold(Long.parseLong(getBatchingElementCountThreshold()))
-								.setRequestByteThreshold(Long.parseLong(getBatchingRequestByteThreshold()))
-								.setDelayThreshold(Duration.ofMillis(Long.parseLong(getBatchingDelayThreshold())));
-					}
-
-					publisherClient = Publisher.newBuilder(getGcpTopic())
-							.setBatchingSettings(batchingSettingsBuilder.build())
-							.setCredentialsProvider(createCredentialsProviderUsingJson(getCredentials())).build();
-
-					variables.putObject(publisherConnection, publisherClient);
-					LOGGER.info(
-							String.format("Publisher connection established with the %s successfully !!", getTopic()));
-				} catch (NumberFormatException e) {
+					final BatchingSettings batchingSettings = createBatchingSettings();
+					final CredentialsProvider credentialsProvider = createCredentialsProviderUsingJson(getCredentials());
+					final TransportSettings transport = new TransportSettings(getChannelCount(),
+							getMaxInboundMessageSize(), getKeepAliveTime(), getKeepAliveTimeout(), isKeepAliveWithoutCalls());
+					final InstantiatingGrpcChannelProvider channelProvider = transport.createChannelProvider(
+							TopicAdminSettings.defaultGrpcTransportProviderBuilder().setChannelPoolSettings(
+									ChannelPoolSettings.staticallySized(Runtime.getRuntime().availableProcessors())));
+					final long compressionThreshold = Long.parseLong(getCompressionBytesThreshold());
+					callbackExecutor = CallbackExecutors.acquire(publisherConnection, getExecutorMode(),
+							Integer.parseInt(getExecutorThreads()), Long.parseLong(getLatencyLogInterval()));
+					final ExecutorProvider executorProvider = callbackExecutor == null ? null
+							: FixedExecutorProvider.create(callbackExecutor);
+					publisherPool = PublisherPool.create(publisherConnection, getClientTopology(),
+							Integer.parseInt(getClientCount()), getClientSelection(), () -> {
+								Publisher.Builder builder = Publisher.newBuilder(getGcpTopic())
+										.setBatchingSettings(batchingSettings)
+										.setChannelProvider(channelProvider)
+										.setEnableCompression(isGrpcCompression())
+										.setCompressionBytesThreshold(compressionThreshold)
+										.setEnableMessageOrdering(isMessageOrdering())
+										.setCredentialsProvider(credentialsProvider);
+								if (executorProvider != null) {
+									builder.setExecutorProvider(executorProvider);
+								}
+								return builder.build();
+							});
+					LOGGER.info(String.format("Publisher transport for %s: %s grpcCompression=%s compressionBytesThreshold=%d",
+							publisherConnection, transport.describe(channelProvider), isGrpcCompression(),
+							compressionThreshold));
+
+					variables.putObject(publisherConnection, publisherPool.getDefault());
+					LatencyRecorder ackLatency = LatencyRecorder.start(publisherConnection + ACK_LATENCY_SUFFIX,
+							Long.parseLong(getLatencyLogInterval()));
+					LatencyRecorder.start(publisherConnection + PUBLISH_BLOCKED_SUFFIX, Long.parseLong(getLatencyLogInterval()));
+					createRateEngine(ackLatency);
+					LOGGER.info(String.format("Publisher connection established with the %s successfully (%s clients) !!",
+							getTopic(), describeTopology()));
+				} catch (IllegalArgumentException e) {
 					LOGGER.error("Exception occurred while parsing publisher properties, check batching and other values specified : ", e);
 					e.printStackTrace();
 				} catch (IOException e) {
@@ -127,6 +193,52 @@ public class PublisherConfig extends ConfigTestElement
 		}
 	}
 
+	// In the open model the engine owns the publish schedule, samplers in observe mode only report its aggregates
+	private void createRateEngine(LatencyRecorder ackLatency) throws IOException {
+		RateProfile profile;
+		if (RatePublishEngine.MODE_CONSTANT.equals(getRateMode())) {
+			profile = RateProfile.constant(Double.parseDouble(getTargetRate()));
+		} else if (RatePublishEngine.MODE_PROFILE.equals(getRateMode())) {
+			profile = RateProfile.load(getRateProfileFile());
+		} else {
+			return;
+		}
+		long interval = Long.parseLong(getLatencyLogInterval());
+		rateEngine = RatePublishEngine.create(publisherConnection, publisherPool, profile,
+				new PublishAckCollector(Long.parseLong(getRateReportInterval()), ackLatency),
+				LatencyRecorder.start(publisherConnection + RatePublishEngine.SCHEDULE_LAG_SUFFIX, interval));
+		LOGGER.info(String.format("Rate engine for %s: %s, waiting for a sampler in observe mode", publisherConnection,
+				profile.describe()));
+	}
+
+	private BatchingSettings createBatchingSettings() {
+		Boolean isBatchingEnabled = Boolean.parseBoolean(getBatchingEnabled());
+		BatchingSettings.Builder batchingSettingsBuilder = BatchingSettings.newBuilder()
+				.setIsEnabled(isBatchingEnabled);
+		if (Boolean.TRUE.equals(isBatchingEnabled)) {
+			batchingSettingsBuilder.setElementCountThreshold(Long.parseLong(getBatchingElementCountThreshold()))
+					.setRequestByteThreshold(Long.parseLong(getBatchingRequestByteThreshold()))
+					.setDelayThreshold(Duration.ofMillis(Long.parseLong(getBatchingDelayThreshold())));
+		}
+		LimitExceededBehavior behavior = LimitExceededBehavior.valueOf(getFlowControlBehavior());
+		if (behavior != LimitExceededBehavior.Ignore) {
+			batchingSettingsBuilder.setFlowControlSettings(FlowControlSettings.newBuilder()
+					.setLimitExceededBehavior(behavior)
+					.setMaxOutstandingElementCount(Long.parseLong(getMaxOutstandingElementCount()))
+					.setMaxOutstandingRequestBytes(Long.parseLong(getMaxOutstandingRequestBytes())).build());
+			LOGGER.info(String.format("Publisher flow control for %s: %s above %s messages or %s bytes outstanding",
+					publisherConnection, behavior, getMaxOutstandingElementCount(), getMaxOutstandingRequestBytes()));
+		}
+		return batchingSettingsBuilder.build();
+	}
+
+	private String describeTopology() {
+		if (PublisherPool.TOPOLOGY_SHARDED.equals(getClientTopology())) {
+			return String.format("%s, %s by %s", getClientTopology(), getClientCount(), getClientSelection());
+		}
+		return getClientTopology();
+	}
+
 	private ProjectTopicName getGcpTopic() {
 		return ProjectTopicName.of(getProjectId(), getTopic());
 	}
@@ -157,16 +269,37 @@ public class PublisherConfig extends ConfigTestElement
 	@Override
 	public void testEnded() {
 		synchronized (this) {
-			if (publisherClient != null) {
-				publisherClient.shutdown();
+			if (rateEngine != null) {
 				try {
-					publisherClient.awaitTermination(30, TimeUnit.SECONDS);
-					LOGGER.info("Publisher connection Terminated successfully !!");
+					rateEngine.stop();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				rateEngine = null;
+				LatencyRecorder.finish(publisherConnection + RatePublishEngine.SCHEDULE_LAG_SUFFIX, null);
+			}
+			if (publisherPool != null) {
+				try {
+					if (publisherPool.shutdown(30, TimeUnit.SECONDS)) {
+						LOGGER.info("Publisher connection Terminated successfully !!");
+					} else {
+						LOGGER.warn("Publisher connection did not terminate in time, payload feeds stay mapped until collected");
+					}
 				} catch (InterruptedException e) {
 					LOGGER.info("Error occurred while terminating Publisher connection");
 					e.printStackTrace();
 				}
+				publisherPool = null;
+			}
+			// Feed slices are referenced by batched messages until the clients terminated
+			if (PublisherPool.isIdle()) {
+				MappedPayloadFeed.closeAll(true);
 			}
+			CallbackExecutors.release(publisherConnection, callbackExecutor);
+			callbackExecutor = null;
+			LatencyRecorder.finish(publisherConnection + ACK_LATENCY_SUFFIX, getLatencyLogFile());
+			LatencyRecorder.finish(publisherConnection + PUBLISH_BLOCKED_SUFFIX, null);
+			OrderingKeySequences.clear();
 		}
 	}
 
@@ -318,4 +451,180 @@ public class PublisherConfig extends ConfigTestElement
 		this.batchingDelayThreshold = batchingDelayThreshold;
 	}
 
+	public String getLatencyLogInterval() {
+		return latencyLogInterval;
+	}
+
+	public void setLatencyLogInterval(String latencyLogInterval) {
+		this.latencyLogInterval = latencyLogInterval;
+	}
+
+	public String getLatencyLogFile() {
+		return latencyLogFile;
+	}
+
+	public void setLatencyLogFile(String latencyLogFile) {
+		this.latencyLogFile = latencyLogFile;
+	}
+
+	public String getClientTopology() {
+		return clientTopology;
+	}
+
+	public void setClientTopology(String clientTopology) {
+		this.clientTopology = clientTopology;
+	}
+
+	public String getClientCount() {
+		return clientCount;
+	}
+
+	public void setClientCount(String clientCount) {
+		this.clientCount = clientCount;
+	}
+
+	public String getClientSelection() {
+		return clientSelection;
+	}
+
+	public void setClientSelection(String clientSelection) {
+		this.clientSelection = clientSelection;
+	}
+
+	public String getChannelCount() {
+		return channelCount;
+	}
+
+	public void setChannelCount(String channelCount) {
+		this.channelCount = channelCount;
+	}
+
+	public String getMaxInboundMessageSize() {
+		return maxInboundMessageSize;
+	}
+
+	public void setMaxInboundMessageSize(String maxInboundMessageSize) {
+		this.maxInboundMessageSize = maxInboundMessageSize;
+	}
+
+	public String getKeepAliveTime() {
+		return keepAliveTime;
+	}
+
+	public void setKeepAliveTime(String keepAliveTime) {
+		this.keepAliveTime = keepAliveTime;
+	}
+
+	public String getKeepAliveTimeout() {
+		return keepAliveTimeout;
+	}
+
+	public void setKeepAliveTimeout(String keepAliveTimeout) {
+		this.keepAliveTimeout = keepAliveTimeout;
+	}
+
+	public boolean isKeepAliveWithoutCalls() {
+		return keepAliveWithoutCalls;
+	}
+
+	public void setKeepAliveWithoutCalls(boolean keepAliveWithoutCalls) {
+		this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+	}
+
+	public boolean isGrpcCompression() {
+		return grpcCompression;
+	}
+
+	public void setGrpcCompression(boolean grpcCompression) {
+		this.grpcCompression = grpcCompression;
+	}
+
+	public String getCompressionBytesThreshold() {
+		return compressionBytesThreshold;
+	}
+
+	public void setCompressionBytesThreshold(String compressionBytesThreshold) {
+		this.compressionBytesThreshold = compressionBytesThreshold;
+	}
+
+	public String getExecutorMode() {
+		return executorMode;
+	}
+
+	public void setExecutorMode(String executorMode) {
+		this.executorMode = executorMode;
+	}
+
+	public String getExecutorThreads() {
+		return executorThreads;
+	}
+
+	public void setExecutorThreads(String executorThreads) {
+		this.executorThreads = executorThreads;
+	}
+
+	public String getFlowControlBehavior() {
+		return flowControlBehavior;
+	}
+
+	public void setFlowControlBehavior(String flowControlBehavior) {
+		this.flowControlBehavior = flowControlBehavior;
+	}
+
+	public String getMaxOutstandingElementCount() {
+		return maxOutstandingElementCount;
+	}
+
+	public void setMaxOutstandingElementCount(String maxOutstandingElementCount) {
+		this.maxOutstandingElementCount = maxOutstandingElementCount;
+	}
+
+	public String getMaxOutstandingRequestBytes() {
+		return maxOutstandingRequestBytes;
+	}
+
+	public void setMaxOutstandingRequestBytes(String maxOutstandingRequestBytes) {
+		this.maxOutstandingRequestBytes = maxOutstandingRequestBytes;
+	}
+
+	public boolean isMessageOrdering() {
+		return messageOrdering;
+	}
+
+	public void setMessageOrdering(boolean messageOrdering) {
+		this.messageOrdering = messageOrdering;
+	}
+
+	public String getRateMode() {
+		return rateMode;
+	}
+
+	public void setRateMode(String rateMode) {
+		this.rateMode = rateMode;
+	}
+
+	public String getTargetRate() {
+		return targetRate;
+	}
+
+	public void setTargetRate(String targetRate) {
+		this.targetRate = targetRate;
+	}
+
+	public String getRateProfileFile() {
+		return rateProfileFile;
+	}
+
+	public void setRateProfileFile(String rateProfileFile) {
+		this.rateProfileFile = rateProfileFile;
+	}
+
+	public String getRateReportInterval() {
+		return rateReportInterval;
+	}
+
+	public void setRateReportInterval(String rateReportInterval) {
+		this.rateReportInterval = rateReportInterval;
+	}
+
 }
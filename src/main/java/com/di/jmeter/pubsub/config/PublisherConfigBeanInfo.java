@@ -23,9 +23,15 @@ import java.util.Arrays;
 import java.util.stream.Collectors;
 
 import org.apache.jmeter.testbeans.BeanInfoSupport;
+import org.apache.jmeter.testbeans.gui.TypeEditor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.di.jmeter.pubsub.utils.CallbackExecutors;
+import com.di.jmeter.pubsub.utils.PublisherPool;
+import com.di.jmeter.pubsub.utils.RatePublishEngine;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+
 public class PublisherConfigBeanInfo extends BeanInfoSupport {
 
 	private static Logger LOGGER = LoggerFactory.getLogger(PublisherConfigBeanInfo.class);
@@ -34,7 +40,20 @@ public class PublisherConfigBeanInfo extends BeanInfoSupport {
 		super(PublisherConfig.class);
 
 		createPropertyGroup("pubConfig", new String[] { "publisherConnection", "batchingEnabled",
-                "batchingElementCountThreshold", "batchingRequestByteThreshold", "batchingDelayThreshold" });
+                "batchingElementCountThreshold", "batchingRequestByteThreshold", "batchingDelayThreshold", "messageOrdering" });
+
+		createPropertyGroup("flowControl", new String[] { "flowControlBehavior", "maxOutstandingElementCount",
+				"maxOutstandingRequestBytes" });
+
+		createPropertyGroup("rateEngine", new String[] { "rateMode", "targetRate", "rateProfileFile", "rateReportInterval" });
+
+		createPropertyGroup("clientPool", new String[] { "clientTopology", "clientCount", "clientSelection" });
+
+		createPropertyGroup("transport", new String[] { "channelCount", "maxInboundMessageSize", "keepAliveTime", "keepAliveTimeout", "keepAliveWithoutCalls", "grpcCompression", "compressionBytesThreshold" });
+
+		createPropertyGroup("executor", new String[] { "executorMode", "executorThreads" });
+
+		createPropertyGroup("latencyLog", new String[] { "latencyLogInterval", "latencyLogFile" });
 
 		createPropertyGroup("credentials", new String[] { "type", "projectId", "topic", "privateKey", "privateKeyId", "tokenUri",
 				"clientId", "clientEmail", "client_x509CertUrl", "authUri", "authProvider_x509CertUrl" });
@@ -103,6 +122,109 @@ public class PublisherConfigBeanInfo extends BeanInfoSupport {
         propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
         propertyDescriptor.setValue(DEFAULT, "1");
 
+		propertyDescriptor = property("messageOrdering");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, Boolean.FALSE);
+
+		propertyDescriptor = property("flowControlBehavior", TypeEditor.ComboStringEditor);
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, LimitExceededBehavior.Ignore.name());
+		propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+		propertyDescriptor.setValue(TAGS, new String[] { LimitExceededBehavior.Ignore.name(),
+				LimitExceededBehavior.Block.name(), LimitExceededBehavior.ThrowException.name() });
+
+		propertyDescriptor = property("maxOutstandingElementCount");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "10000");
+
+		propertyDescriptor = property("maxOutstandingRequestBytes");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "104857600");
+
+		propertyDescriptor = property("rateMode", TypeEditor.ComboStringEditor);
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, RatePublishEngine.MODE_OFF);
+		propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+		propertyDescriptor.setValue(TAGS, new String[] { RatePublishEngine.MODE_OFF, RatePublishEngine.MODE_CONSTANT,
+				RatePublishEngine.MODE_PROFILE });
+
+		propertyDescriptor = property("targetRate");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "1000");
+
+		propertyDescriptor = property("rateProfileFile", TypeEditor.FileEditor);
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "");
+
+		propertyDescriptor = property("rateReportInterval");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "1000");
+
+		propertyDescriptor = property("clientTopology", TypeEditor.ComboStringEditor);
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, PublisherPool.TOPOLOGY_SHARED);
+		propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+		propertyDescriptor.setValue(TAGS, new String[] { PublisherPool.TOPOLOGY_SHARED,
+				PublisherPool.TOPOLOGY_PER_THREAD, PublisherPool.TOPOLOGY_SHARDED });
+
+		propertyDescriptor = property("clientCount");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "4");
+
+		propertyDescriptor = property("clientSelection", TypeEditor.ComboStringEditor);
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, PublisherPool.SELECTION_ROUND_ROBIN);
+		propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+		propertyDescriptor.setValue(TAGS, new String[] { PublisherPool.SELECTION_ROUND_ROBIN,
+				PublisherPool.SELECTION_KEY_HASH });
+
+		propertyDescriptor = property("channelCount");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "");
+
+		propertyDescriptor = property("maxInboundMessageSize");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "");
+
+		propertyDescriptor = property("keepAliveTime");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "");
+
+		propertyDescriptor = property("keepAliveTimeout");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "");
+
+		propertyDescriptor = property("keepAliveWithoutCalls");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, Boolean.FALSE);
+
+		propertyDescriptor = property("grpcCompression");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, Boolean.FALSE);
+
+		propertyDescriptor = property("compressionBytesThreshold");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "240");
+
+		propertyDescriptor = property("executorMode", TypeEditor.ComboStringEditor);
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, CallbackExecutors.MODE_DEFAULT);
+		propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+		propertyDescriptor.setValue(TAGS, new String[] { CallbackExecutors.MODE_DEFAULT, CallbackExecutors.MODE_FIXED,
+				CallbackExecutors.MODE_SHARED, CallbackExecutors.MODE_VIRTUAL });
+
+		propertyDescriptor = property("executorThreads");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "4");
+
+		propertyDescriptor = property("latencyLogInterval");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "1000");
+
+		propertyDescriptor = property("latencyLogFile");
+		propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		propertyDescriptor.setValue(DEFAULT, "");
+
 
 		if (LOGGER.isDebugEnabled()) {
 			String pubDescriptorsAsString = Arrays.stream(getPropertyDescriptors())
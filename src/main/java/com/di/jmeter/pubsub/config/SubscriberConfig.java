@@ -22,8 +22,14 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
-import java.util.HashMap;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.jmeter.config.ConfigElement;
 import org.apache.jmeter.config.ConfigTestElement;
@@ -36,13 +42,34 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.threeten.bp.Duration;
 
+import com.di.jmeter.pubsub.utils.CallbackExecutors;
+import com.di.jmeter.pubsub.utils.ConsumeCounter;
+import com.di.jmeter.pubsub.utils.CorrelatingMessageReceiver;
+import com.di.jmeter.pubsub.utils.CorrelationIndex;
+import com.di.jmeter.pubsub.utils.CountingMessageReceiver;
+import com.di.jmeter.pubsub.utils.DeliveryLatencyStats;
+import com.di.jmeter.pubsub.utils.HashedTimerWheel;
+import com.di.jmeter.pubsub.utils.LatencyRecorder;
+import com.di.jmeter.pubsub.utils.MessageAttributes;
 import com.di.jmeter.pubsub.utils.MessagesQueue;
+import com.di.jmeter.pubsub.utils.OrderingTracker;
+import com.di.jmeter.pubsub.utils.SequenceTracker;
 import com.di.jmeter.pubsub.utils.SimpleMessageReceiver;
+import com.di.jmeter.pubsub.utils.SpillingMessagesQueue;
+import com.di.jmeter.pubsub.utils.StripedMessagesQueue;
+import com.di.jmeter.pubsub.utils.SyncPuller;
+import com.di.jmeter.pubsub.utils.TransportSettings;
 import com.google.api.gax.batching.FlowControlSettings;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.api.gax.core.FixedExecutorProvider;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.cloud.pubsub.v1.SubscriptionAdminSettings;
+import com.google.cloud.pubsub.v1.stub.GrpcSubscriberStub;
+import com.google.cloud.pubsub.v1.stub.SubscriberStubSettings;
 import com.google.gson.JsonObject;
 import com.google.pubsub.v1.ProjectSubscriptionName;
 
@@ -50,10 +77,31 @@ import com.google.pubsub.v1.ProjectSubscriptionName;
 public class SubscriberConfig extends ConfigTestElement implements ConfigElement, TestStateListener, TestBean, Serializable {
 
 	private static final long serialVersionUID = -6527581818773236163L;
+	public static final String DELIVERY_LATENCY_SUFFIX = ".delivery";
+	public static final String ACK_LATENCY_SUFFIX = ".ack";
+	// Longest time the delayed acks still pending at the end of the test may take to be sent
+	private static final long ACK_FLUSH_TIMEOUT_MS = 10_000;
+	public static final String ACK_MODE_ON_RECEIVE = "onReceive";
+	public static final String ACK_MODE_AFTER_SAMPLE = "afterSample";
+	public static final String RECEIVE_MODE_QUEUE = "queue";
+	public static final String RECEIVE_MODE_COUNT_ONLY = "countOnly";
+	public static final String RECEIVE_MODE_SYNC_PULL = "syncPull";
+	public static final String RECEIVE_MODE_CORRELATION = "correlation";
+	public static final String DISPATCH_SINGLE = "single";
+	public static final String DISPATCH_STRIPED = "striped";
+	public static final String RETENTION_FULL = "full";
+	public static final String RETENTION_METADATA = "metadata";
+	private static final long ACK_TIMER_TICK_MS = 10;
+	private static final int ACK_TIMER_TICKS_PER_WHEEL = 512;
+	// Transport defaults of the subscriber client, kept when the channel provider is replaced
+	private static final int MAX_INBOUND_MESSAGE_SIZE = 20 * 1024 * 1024;
+	private static final int MAX_INBOUND_METADATA_SIZE = 4 * 1024 * 1024;
 	private static Logger LOGGER = LoggerFactory.getLogger(SubscriberConfig.class);
 	private Subscriber subscriber;
+	private transient ScheduledExecutorService callbackExecutor;
+	private transient OrderingTracker orderingTracker;
+	private transient SequenceTracker sequenceTracker;
 	private transient JsonObject credentials = new JsonObject();
-	private static GoogleCredentials gcpCredentials = null;
 
 	private String type;
 	private String topic;
@@ -72,8 +120,41 @@ public class SubscriberConfig extends ConfigTestElement implements ConfigElement
 	private String maxAckExtensionPeriod;
 	private String maxOutStandingElementCount;
 	private String maxOutstandingRequestBytes;
+	private String latencyLogInterval;
+	private String latencyLogFile;
+	private String channelCount;
+	private String maxInboundMessageSize;
+	private String keepAliveTime;
+	private String keepAliveTimeout;
+	private boolean keepAliveWithoutCalls;
+	private String executorMode;
+	private String executorThreads;
+	private boolean verifyOrdering;
+	private boolean verifySequences;
+	private String sequenceReportInterval;
+	private String ackMode;
+	private String queueImplementation;
+	private String queueCapacity;
+	private String queueWaitStrategy;
+	private String queueMaxBytes;
+	private String spillDirectory;
+	private String spillMaxBytes;
+	private String dispatchMode;
+	private String stripeCount;
+	private String stripeAttribute;
+	private String payloadRetention;
+	private String retainedAttributes;
+	private String receiveMode;
+	private String countReportInterval;
+	private String correlationAttribute;
+	private String correlationTtl;
 	
-	private static Map<String, MessagesQueue> pubsubQueue = new HashMap<String, MessagesQueue>();
+	private static final Map<String, MessagesQueue> pubsubQueue = new ConcurrentHashMap<>();
+	private static final Map<String, DeliveryLatencyStats> latencyStats = new ConcurrentHashMap<>();
+	private static final Map<String, HashedTimerWheel> ackTimers = new ConcurrentHashMap<>();
+	private static final Map<String, ConsumeCounter> consumeCounters = new ConcurrentHashMap<>();
+	private static final Map<String, SyncPuller> syncPullers = new ConcurrentHashMap<>();
+	private static final Map<String, CorrelationIndex> correlationIndexes = new ConcurrentHashMap<>();
 	private String subscriberConnection;
 	//private static String MESSAGESQUEUE = "message";
 	private static String SUBSCRIBED_TOPIC="subTopic";
@@ -92,40 +173,140 @@ public class SubscriberConfig extends ConfigTestElement implements ConfigElement
 		} else {
 			synchronized (this) {
 				try {
-					MessagesQueue messagesQueue = new MessagesQueue(100000);
+					boolean countOnly = RECEIVE_MODE_COUNT_ONLY.equals(getReceiveMode());
+					boolean syncPull = RECEIVE_MODE_SYNC_PULL.equals(getReceiveMode());
+					boolean correlation = RECEIVE_MODE_CORRELATION.equals(getReceiveMode());
+					MessagesQueue messagesQueue = countOnly || syncPull || correlation ? null : createMessagesQueue();
+					LatencyRecorder deliveryLatency = LatencyRecorder.start(getSubscriberConnection() + DELIVERY_LATENCY_SUFFIX,
+							Long.parseLong(getLatencyLogInterval()));
 					
+					orderingTracker = isVerifyOrdering() ? new OrderingTracker() : null;
+					sequenceTracker = isVerifySequences() ? new SequenceTracker() : null;
+					if (sequenceTracker != null) {
+						sequenceTracker.startReporting(getSubscriberConnection(), Long.parseLong(getSequenceReportInterval()));
+					}
+					boolean deferAck = isAckAfterSample() && !countOnly && !syncPull;
+					// Sync pull samplers always ack themselves
+					if (deferAck || syncPull) {
+						LatencyRecorder.start(getSubscriberConnection() + ACK_LATENCY_SUFFIX, Long.parseLong(getLatencyLogInterval()));
+						ackTimers.put(getSubscriberConnection(), new HashedTimerWheel(getSubscriberConnection() + "-ack-timer",
+								ACK_TIMER_TICK_MS, TimeUnit.MILLISECONDS, ACK_TIMER_TICKS_PER_WHEEL));
+					}
 					LOGGER.info("Attempting to subscribe to a topic");
-					if (isFlowControlSetting()) {
-						subscriber = Subscriber.newBuilder(subscriptionName, new SimpleMessageReceiver(messagesQueue))
+					TransportSettings transport = new TransportSettings(getChannelCount(), getMaxInboundMessageSize(),
+							getKeepAliveTime(), getKeepAliveTimeout(), isKeepAliveWithoutCalls());
+					InstantiatingGrpcChannelProvider channelProvider = transport.createChannelProvider(
+							SubscriptionAdminSettings.defaultGrpcTransportProviderBuilder()
+									.setMaxInboundMessageSize(MAX_INBOUND_MESSAGE_SIZE)
+									.setMaxInboundMetadataSize(MAX_INBOUND_METADATA_SIZE)
+									.setKeepAliveTime(Duration.ofMinutes(5)));
+					if (syncPull) {
+						SubscriberStubSettings stubSettings = SubscriberStubSettings.newBuilder()
 								.setCredentialsProvider(createCredentialsProviderUsingJson(getCredentials()))
-								.setMaxAckExtensionPeriod(Duration.ofMillis(Long.parseLong(getMaxAckExtensionPeriod())))
-								.setFlowControlSettings(flowControlSettings())
-								.setParallelPullCount(Integer.parseInt(getParallelPullCount())).build();
-
+								.setTransportChannelProvider(channelProvider)
+								.build();
+						syncPullers.put(getSubscriberConnection(),
+								new SyncPuller(GrpcSubscriberStub.create(stubSettings), subscriptionName.toString()));
+						LOGGER.info(String.format("Subscriber transport for %s (sync pull): %s", getSubscriberConnection(),
+								transport.describe(channelProvider)));
 					} else {
-						subscriber = Subscriber.newBuilder(subscriptionName, new SimpleMessageReceiver(messagesQueue))
+						MessageReceiver receiver;
+						if (countOnly) {
+							ConsumeCounter counter = new ConsumeCounter(Long.parseLong(getCountReportInterval()));
+							consumeCounters.put(getSubscriberConnection(), counter);
+							receiver = new CountingMessageReceiver(counter, deliveryLatency, orderingTracker, sequenceTracker);
+						} else if (correlation) {
+							CorrelationIndex index = new CorrelationIndex(getSubscriberConnection(), Long.parseLong(getCorrelationTtl()));
+							correlationIndexes.put(getSubscriberConnection(), index);
+							receiver = new CorrelatingMessageReceiver(index, getCorrelationAttribute(), deliveryLatency, deferAck,
+									retainedAttributeKeys());
+						} else {
+							receiver = new SimpleMessageReceiver(messagesQueue, deliveryLatency, orderingTracker, deferAck, retainedAttributeKeys(),
+									sequenceTracker);
+						}
+						Subscriber.Builder builder = Subscriber.newBuilder(subscriptionName, receiver)
 								.setCredentialsProvider(createCredentialsProviderUsingJson(getCredentials()))
 								.setMaxAckExtensionPeriod(Duration.ofMillis(Long.parseLong(getMaxAckExtensionPeriod())))
-								.build();
-
+								.setChannelProvider(channelProvider);
+						if (isFlowControlSetting()) {
+							builder.setFlowControlSettings(flowControlSettings())
+									.setParallelPullCount(Integer.parseInt(getParallelPullCount()));
+						}
+						callbackExecutor = CallbackExecutors.acquire(getSubscriberConnection(), getExecutorMode(),
+								Integer.parseInt(getExecutorThreads()), Long.parseLong(getLatencyLogInterval()));
+						if (callbackExecutor != null) {
+							builder.setExecutorProvider(FixedExecutorProvider.create(callbackExecutor));
+						}
+						subscriber = builder.build();
+						LOGGER.info(String.format("Subscriber transport for %s: %s", getSubscriberConnection(),
+								transport.describe(channelProvider)));
+
+						subscriber.startAsync().awaitRunning();
+						// subscriber.awaitTerminated(); 
+						// Allow the subscriber to run indefinitely unless an error occurs
 					}
-
-					subscriber.startAsync().awaitRunning();
-					// subscriber.awaitTerminated(); 
-					// Allow the subscriber to run indefinitely unless an error occurs
-					pubsubQueue.put(getSubscriberConnection(), messagesQueue);
+					if (messagesQueue != null) {
+						pubsubQueue.put(getSubscriberConnection(), messagesQueue);
+					}
+					latencyStats.put(getSubscriberConnection(), new DeliveryLatencyStats());
 					//variables.putObject(subscriberConnection, subscriber);
 					//variables.putObject(MESSAGESQUEUE, pubsubQueue);
 					variables.putObject(SUBSCRIBED_TOPIC, topic);
 					LOGGER.info(String.format("Subscriber connection established with the %s successfully !!", getTopic()));
 
-				} catch (IllegalStateException e) {
+				} catch (IllegalStateException | IllegalArgumentException | IOException e) {
 					LOGGER.info("Error occurred while establishing subscriber connection with Pub/Sub: " + e);
 				}
 			}
 		}
 	}
 
+	// Striped queues in striped dispatch, else a plain count-bounded queue unless a byte budget or a spill directory is set
+	private MessagesQueue createMessagesQueue() throws IOException {
+		int capacity = Integer.parseInt(getQueueCapacity());
+		if (DISPATCH_STRIPED.equals(getDispatchMode())) {
+			if (!isBlank(getQueueMaxBytes()) || !isBlank(getSpillDirectory())) {
+				LOGGER.warn(String.format("Byte budget and spill are not supported with striped dispatch, ignored for %s",
+						getSubscriberConnection()));
+			}
+			return new StripedMessagesQueue(getQueueImplementation(), capacity, getQueueWaitStrategy(),
+					Integer.parseInt(getStripeCount()), getStripeAttribute());
+		}
+		if (isBlank(getQueueMaxBytes()) && isBlank(getSpillDirectory())) {
+			return MessagesQueue.create(getQueueImplementation(), capacity, getQueueWaitStrategy());
+		}
+		LatencyRecorder readLatency = null;
+		if (!isBlank(getSpillDirectory())) {
+			readLatency = LatencyRecorder.start(getSubscriberConnection() + SpillingMessagesQueue.SPILL_READ_SUFFIX,
+					Long.parseLong(getLatencyLogInterval()));
+		}
+		return new SpillingMessagesQueue(getQueueImplementation(), capacity, getQueueWaitStrategy(),
+				isBlank(getQueueMaxBytes()) ? 0 : Long.parseLong(getQueueMaxBytes().trim()),
+				isBlank(getSpillDirectory()) ? null : Paths.get(getSpillDirectory().trim()),
+				isBlank(getSpillMaxBytes()) ? 0 : Long.parseLong(getSpillMaxBytes().trim()), readLatency);
+	}
+
+	// Attributes kept in metadata-only mode, the send timestamp is always kept for the latency breakdown; null keeps whole messages
+	private String[] retainedAttributeKeys() {
+		if (!RETENTION_METADATA.equals(getPayloadRetention())) {
+			return null;
+		}
+		Set<String> keys = new LinkedHashSet<>();
+		keys.add(MessageAttributes.SEND_TIMESTAMP);
+		if (!isBlank(getRetainedAttributes())) {
+			for (String key : getRetainedAttributes().split(",")) {
+				if (!key.trim().isEmpty()) {
+					keys.add(key.trim());
+				}
+			}
+		}
+		return keys.toArray(new String[0]);
+	}
+
+	private static boolean isBlank(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+
 	private FlowControlSettings flowControlSettings() {
 		return FlowControlSettings.newBuilder()
 				.setMaxOutstandingElementCount(Long.valueOf(getMaxOutStandingElementCount()))
@@ -140,11 +321,79 @@ public class SubscriberConfig extends ConfigTestElement implements ConfigElement
 	@Override
 	public void testEnded() {
 		synchronized (this) {
+			// Delayed acks are sent now while the subscriber and the sync puller can still deliver them,
+			// dropping them would show up as redeliveries and duplicates in the next run
+			HashedTimerWheel ackTimer = ackTimers.remove(getSubscriberConnection());
+			if (ackTimer != null) {
+				try {
+					int dropped = ackTimer.flush(ACK_FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+					if (dropped > 0) {
+						LOGGER.warn(String.format("%d delayed acks of %s were dropped, the messages will be redelivered", dropped,
+								getSubscriberConnection()));
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
 			if (subscriber != null) {
 				subscriber.stopAsync();
+			}
+			// Closed while the subscriber is still stopping, so the nacks of the queued messages reach the server
+			MessagesQueue messagesQueue = pubsubQueue.remove(getSubscriberConnection());
+			if (messagesQueue instanceof SpillingMessagesQueue) {
+				LOGGER.info(String.format("Queue of %s: %s", getSubscriberConnection(), ((SpillingMessagesQueue) messagesQueue).summary()));
+			}
+			if (messagesQueue != null) {
+				messagesQueue.close();
+			}
+			if (subscriber != null) {
+				if (callbackExecutor != null) {
+					// The callback executor is ours to close, so let the subscriber drain it first
+					try {
+						subscriber.awaitTerminated(30, TimeUnit.SECONDS);
+					} catch (TimeoutException | IllegalStateException e) {
+						LOGGER.info("Subscriber did not terminate cleanly: " + e);
+					}
+				}
 				subscriber = null;
 				LOGGER.info("Subscriber connection Terminated successfully !!");
 			}
+			SyncPuller syncPuller = syncPullers.remove(getSubscriberConnection());
+			if (syncPuller != null) {
+				try {
+					syncPuller.close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			CorrelationIndex correlationIndex = correlationIndexes.remove(getSubscriberConnection());
+			if (correlationIndex != null) {
+				LOGGER.info(String.format("Correlation of %s: %s", getSubscriberConnection(), correlationIndex.summary()));
+				try {
+					correlationIndex.close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			LatencyRecorder.finish(getSubscriberConnection() + ACK_LATENCY_SUFFIX, null);
+			consumeCounters.remove(getSubscriberConnection());
+			LatencyRecorder.finish(getSubscriberConnection() + SpillingMessagesQueue.SPILL_READ_SUFFIX, null);
+			CallbackExecutors.release(getSubscriberConnection(), callbackExecutor);
+			callbackExecutor = null;
+			if (orderingTracker != null) {
+				LOGGER.info(String.format("Delivery order for %s: %s", getSubscriberConnection(), orderingTracker.summary()));
+				orderingTracker = null;
+			}
+			if (sequenceTracker != null) {
+				sequenceTracker.stopReporting();
+				LOGGER.info(String.format("Sequences of %s: %s", getSubscriberConnection(), sequenceTracker.report()));
+				sequenceTracker = null;
+			}
+			LatencyRecorder.finish(getSubscriberConnection() + DELIVERY_LATENCY_SUFFIX, getLatencyLogFile());
+			DeliveryLatencyStats stats = latencyStats.remove(getSubscriberConnection());
+			if (stats != null) {
+				LOGGER.info(String.format("Delivery latency for %s:%n%s", getSubscriberConnection(), stats.summary()));
+			}
 		}
 	}
 
@@ -186,6 +435,7 @@ public class SubscriberConfig extends ConfigTestElement implements ConfigElement
 	private static CredentialsProvider createCredentialsProviderUsingJson(JsonObject credentials) {
 
 		InputStream configJson = new ByteArrayInputStream(credentials.toString().getBytes());
+		GoogleCredentials gcpCredentials = null;
 
 		try {
 			gcpCredentials = GoogleCredentials.fromStream(configJson);
@@ -354,6 +604,22 @@ public class SubscriberConfig extends ConfigTestElement implements ConfigElement
 		return (String) JMeterContextService.getContext().getVariables().getObject(SUBSCRIBED_TOPIC);
 	}
 
+	public String getLatencyLogInterval() {
+		return latencyLogInterval;
+	}
+
+	public void setLatencyLogInterval(String latencyLogInterval) {
+		this.latencyLogInterval = latencyLogInterval;
+	}
+
+	public String getLatencyLogFile() {
+		return latencyLogFile;
+	}
+
+	public void setLatencyLogFile(String latencyLogFile) {
+		this.latencyLogFile = latencyLogFile;
+	}
+
 	public String getSubscriberConnection() {
 		return subscriberConnection;
 	}
@@ -366,9 +632,240 @@ public class SubscriberConfig extends ConfigTestElement implements ConfigElement
 		return pubsubQueue;
 	}
 
-	public static void setPubsubQueue(Map<String, MessagesQueue> pubsubQueue) {
-		SubscriberConfig.pubsubQueue = pubsubQueue;
+	public static DeliveryLatencyStats getLatencyStats(String subscriberConnection) {
+		return latencyStats.get(subscriberConnection);
 	}
-	
-	
+
+	// Counters of the count-only mode, null when the connection queues messages
+	public static ConsumeCounter getConsumeCounter(String subscriberConnection) {
+		return consumeCounters.get(subscriberConnection);
+	}
+
+	// Index of the correlation mode, null in the other receive modes
+	public static CorrelationIndex getCorrelationIndex(String subscriberConnection) {
+		return correlationIndexes.get(subscriberConnection);
+	}
+
+	// Unary pull client of the sync pull mode, null in the other receive modes
+	public static SyncPuller getSyncPuller(String subscriberConnection) {
+		return syncPullers.get(subscriberConnection);
+	}
+
+	// Timer wheel the samplers schedule delayed acks on, null unless the ack mode is afterSample or the receive mode syncPull
+	public static HashedTimerWheel getAckTimer(String subscriberConnection) {
+		return ackTimers.get(subscriberConnection);
+	}
+
+	public String getChannelCount() {
+		return channelCount;
+	}
+
+	public void setChannelCount(String channelCount) {
+		this.channelCount = channelCount;
+	}
+
+	public String getMaxInboundMessageSize() {
+		return maxInboundMessageSize;
+	}
+
+	public void setMaxInboundMessageSize(String maxInboundMessageSize) {
+		this.maxInboundMessageSize = maxInboundMessageSize;
+	}
+
+	public String getKeepAliveTime() {
+		return keepAliveTime;
+	}
+
+	public void setKeepAliveTime(String keepAliveTime) {
+		this.keepAliveTime = keepAliveTime;
+	}
+
+	public String getKeepAliveTimeout() {
+		return keepAliveTimeout;
+	}
+
+	public void setKeepAliveTimeout(String keepAliveTimeout) {
+		this.keepAliveTimeout = keepAliveTimeout;
+	}
+
+	public boolean isKeepAliveWithoutCalls() {
+		return keepAliveWithoutCalls;
+	}
+
+	public void setKeepAliveWithoutCalls(boolean keepAliveWithoutCalls) {
+		this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+	}
+
+	public String getExecutorMode() {
+		return executorMode;
+	}
+
+	public void setExecutorMode(String executorMode) {
+		this.executorMode = executorMode;
+	}
+
+	public String getExecutorThreads() {
+		return executorThreads;
+	}
+
+	public void setExecutorThreads(String executorThreads) {
+		this.executorThreads = executorThreads;
+	}
+
+	public boolean isVerifyOrdering() {
+		return verifyOrdering;
+	}
+
+	public void setVerifyOrdering(boolean verifyOrdering) {
+		this.verifyOrdering = verifyOrdering;
+	}
+
+	public String getAckMode() {
+		return ackMode;
+	}
+
+	public void setAckMode(String ackMode) {
+		this.ackMode = ackMode;
+	}
+
+	public String getQueueImplementation() {
+		return queueImplementation;
+	}
+
+	public void setQueueImplementation(String queueImplementation) {
+		this.queueImplementation = queueImplementation;
+	}
+
+	public String getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(String queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public String getQueueWaitStrategy() {
+		return queueWaitStrategy;
+	}
+
+	public void setQueueWaitStrategy(String queueWaitStrategy) {
+		this.queueWaitStrategy = queueWaitStrategy;
+	}
+
+	public String getQueueMaxBytes() {
+		return queueMaxBytes;
+	}
+
+	public void setQueueMaxBytes(String queueMaxBytes) {
+		this.queueMaxBytes = queueMaxBytes;
+	}
+
+	public String getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	public void setSpillDirectory(String spillDirectory) {
+		this.spillDirectory = spillDirectory;
+	}
+
+	public String getSpillMaxBytes() {
+		return spillMaxBytes;
+	}
+
+	public void setSpillMaxBytes(String spillMaxBytes) {
+		this.spillMaxBytes = spillMaxBytes;
+	}
+
+	public String getDispatchMode() {
+		return dispatchMode;
+	}
+
+	public void setDispatchMode(String dispatchMode) {
+		this.dispatchMode = dispatchMode;
+	}
+
+	public String getStripeCount() {
+		return stripeCount;
+	}
+
+	public void setStripeCount(String stripeCount) {
+		this.stripeCount = stripeCount;
+	}
+
+	public String getStripeAttribute() {
+		return stripeAttribute;
+	}
+
+	public void setStripeAttribute(String stripeAttribute) {
+		this.stripeAttribute = stripeAttribute;
+	}
+
+	public String getPayloadRetention() {
+		return payloadRetention;
+	}
+
+	public void setPayloadRetention(String payloadRetention) {
+		this.payloadRetention = payloadRetention;
+	}
+
+	public String getRetainedAttributes() {
+		return retainedAttributes;
+	}
+
+	public void setRetainedAttributes(String retainedAttributes) {
+		this.retainedAttributes = retainedAttributes;
+	}
+
+	public String getReceiveMode() {
+		return receiveMode;
+	}
+
+	public void setReceiveMode(String receiveMode) {
+		this.receiveMode = receiveMode;
+	}
+
+	public String getCountReportInterval() {
+		return countReportInterval;
+	}
+
+	public void setCountReportInterval(String countReportInterval) {
+		this.countReportInterval = countReportInterval;
+	}
+
+	public String getCorrelationAttribute() {
+		return correlationAttribute;
+	}
+
+	public void setCorrelationAttribute(String correlationAttribute) {
+		this.correlationAttribute = correlationAttribute;
+	}
+
+	public String getCorrelationTtl() {
+		return correlationTtl;
+	}
+
+	public void setCorrelationTtl(String correlationTtl) {
+		this.correlationTtl = correlationTtl;
+	}
+
+	public boolean isVerifySequences() {
+		return verifySequences;
+	}
+
+	public void setVerifySequences(boolean verifySequences) {
+		this.verifySequences = verifySequences;
+	}
+
+	public String getSequenceReportInterval() {
+		return sequenceReportInterval;
+	}
+
+	public void setSequenceReportInterval(String sequenceReportInterval) {
+		this.sequenceReportInterval = sequenceReportInterval;
+	}
+
+	private boolean isAckAfterSample() {
+		return ACK_MODE_AFTER_SAMPLE.equals(getAckMode());
+	}
+
 }
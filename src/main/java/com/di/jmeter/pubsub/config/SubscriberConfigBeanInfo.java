@@ -23,16 +23,29 @@ import java.util.Arrays;
 import java.util.stream.Collectors;
 
 import org.apache.jmeter.testbeans.BeanInfoSupport;
+import org.apache.jmeter.testbeans.gui.TypeEditor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.di.jmeter.pubsub.utils.CallbackExecutors;
+import com.di.jmeter.pubsub.utils.MessagesQueue;
+import com.di.jmeter.pubsub.utils.MpmcRingBuffer;
+
 public class SubscriberConfigBeanInfo extends BeanInfoSupport {
 	private static Logger LOGGER = LoggerFactory.getLogger(SubscriberConfigBeanInfo.class);
 
 	public SubscriberConfigBeanInfo() {
 		super(SubscriberConfig.class);
 		
-		createPropertyGroup("subConfig", new String[] { "subscriberConnection" });
+		createPropertyGroup("subConfig", new String[] { "subscriberConnection", "receiveMode", "countReportInterval", "correlationAttribute", "correlationTtl", "ackMode", "payloadRetention", "retainedAttributes", "verifyOrdering", "verifySequences", "sequenceReportInterval" });
+
+		createPropertyGroup("queue", new String[] { "queueImplementation", "queueCapacity", "queueWaitStrategy", "queueMaxBytes", "spillDirectory", "spillMaxBytes", "dispatchMode", "stripeCount", "stripeAttribute" });
+
+		createPropertyGroup("transport", new String[] { "channelCount", "maxInboundMessageSize", "keepAliveTime", "keepAliveTimeout", "keepAliveWithoutCalls" });
+
+		createPropertyGroup("executor", new String[] { "executorMode", "executorThreads" });
+
+		createPropertyGroup("latencyLog", new String[] { "latencyLogInterval", "latencyLogFile" });
 
 		createPropertyGroup("credentials",
 				new String[] { "type", "projectId", "topic", "subscriptionId", "privateKey", "privateKeyId", "tokenUri",
@@ -94,6 +107,53 @@ public class SubscriberConfigBeanInfo extends BeanInfoSupport {
 		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
 		p.setValue(DEFAULT, "1");
 		
+		p = property("receiveMode", TypeEditor.ComboStringEditor);
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, SubscriberConfig.RECEIVE_MODE_QUEUE);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { SubscriberConfig.RECEIVE_MODE_QUEUE, SubscriberConfig.RECEIVE_MODE_COUNT_ONLY,
+				SubscriberConfig.RECEIVE_MODE_SYNC_PULL, SubscriberConfig.RECEIVE_MODE_CORRELATION });
+
+		p = property("correlationAttribute");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "correlation_id");
+
+		p = property("correlationTtl");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "60000");
+
+		p = property("countReportInterval");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "1000");
+
+		p = property("ackMode", TypeEditor.ComboStringEditor);
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, SubscriberConfig.ACK_MODE_ON_RECEIVE);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { SubscriberConfig.ACK_MODE_ON_RECEIVE, SubscriberConfig.ACK_MODE_AFTER_SAMPLE });
+
+		p = property("payloadRetention", TypeEditor.ComboStringEditor);
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, SubscriberConfig.RETENTION_FULL);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { SubscriberConfig.RETENTION_FULL, SubscriberConfig.RETENTION_METADATA });
+
+		p = property("retainedAttributes");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "");
+
+		p = property("verifyOrdering");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Boolean.FALSE);
+
+		p = property("verifySequences");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Boolean.FALSE);
+
+		p = property("sequenceReportInterval");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "10000");
+
 		p = property("flowControlSetting");
 		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
 		p.setValue(DEFAULT, Boolean.FALSE);
@@ -115,6 +175,87 @@ public class SubscriberConfigBeanInfo extends BeanInfoSupport {
 		p.setValue(DEFAULT, "<SUBSCRIBER CONFIG OBJECT>");
 
 
+		p = property("queueImplementation", TypeEditor.ComboStringEditor);
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, MessagesQueue.IMPLEMENTATION_LINKED);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { MessagesQueue.IMPLEMENTATION_LINKED, MessagesQueue.IMPLEMENTATION_RING });
+
+		p = property("queueCapacity");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "100000");
+
+		p = property("queueWaitStrategy", TypeEditor.ComboStringEditor);
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, MpmcRingBuffer.WAIT_PARK);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { MpmcRingBuffer.WAIT_SPIN, MpmcRingBuffer.WAIT_YIELD, MpmcRingBuffer.WAIT_PARK });
+
+		p = property("queueMaxBytes");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "");
+
+		p = property("spillDirectory");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "");
+
+		p = property("spillMaxBytes");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "");
+
+		p = property("dispatchMode", TypeEditor.ComboStringEditor);
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, SubscriberConfig.DISPATCH_SINGLE);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { SubscriberConfig.DISPATCH_SINGLE, SubscriberConfig.DISPATCH_STRIPED });
+
+		p = property("stripeCount");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "8");
+
+		p = property("stripeAttribute");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "");
+
+		p = property("channelCount");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "");
+
+		p = property("maxInboundMessageSize");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "");
+
+		p = property("keepAliveTime");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "");
+
+		p = property("keepAliveTimeout");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "");
+
+		p = property("keepAliveWithoutCalls");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, Boolean.FALSE);
+
+		p = property("executorMode", TypeEditor.ComboStringEditor);
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, CallbackExecutors.MODE_DEFAULT);
+		p.setValue(NOT_OTHER, Boolean.TRUE);
+		p.setValue(TAGS, new String[] { CallbackExecutors.MODE_DEFAULT, CallbackExecutors.MODE_FIXED,
+				CallbackExecutors.MODE_SHARED, CallbackExecutors.MODE_VIRTUAL });
+
+		p = property("executorThreads");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "4");
+
+		p = property("latencyLogInterval");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "1000");
+
+		p = property("latencyLogFile");
+		p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+		p.setValue(DEFAULT, "");
+
 		if (LOGGER.isDebugEnabled()) {
 			String subDescriptorsAsString = Arrays.stream(getPropertyDescriptors())
 					.map(pd -> pd.getName() + "=" + pd.getDisplayName()).collect(Collectors.joining(" ,"));
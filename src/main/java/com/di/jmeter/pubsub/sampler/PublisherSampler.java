@@ -18,79 +18,129 @@
 
 package com.di.jmeter.pubsub.sampler;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.engine.StandardJMeterEngine;
 import org.apache.jmeter.engine.util.ConfigMergabilityIndicator;
 import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.testbeans.TestBean;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.ThreadListener;
+import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterThread;
+import org.apache.jmeter.threads.SamplePackage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.di.jmeter.pubsub.config.PublisherConfig;
+import com.di.jmeter.pubsub.utils.AttributesCache;
+import com.di.jmeter.pubsub.utils.EpochClock;
+import com.di.jmeter.pubsub.codec.PayloadCodecs;
+import com.di.jmeter.pubsub.utils.EncodedPayload;
+import com.di.jmeter.pubsub.utils.LatencyRecorder;
+import com.di.jmeter.pubsub.utils.MappedPayloadFeed;
+import com.di.jmeter.pubsub.utils.MessageAttributes;
+import com.di.jmeter.pubsub.utils.OrderingKeySequences;
+import com.di.jmeter.pubsub.utils.PayloadCache;
+import com.di.jmeter.pubsub.utils.PublishAckCollector;
+import com.di.jmeter.pubsub.utils.PublisherPool;
+import com.di.jmeter.pubsub.utils.RatePublishEngine;
+import com.di.jmeter.pubsub.utils.SequenceTracker;
+import com.di.jmeter.pubsub.utils.SyntheticPayloadRing;
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
 import com.google.cloud.pubsub.v1.Publisher;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
 
-public class PublisherSampler extends PublisherTestElement implements Sampler, TestBean, ConfigMergabilityIndicator {
+public class PublisherSampler extends PublisherTestElement implements Sampler, TestBean, ThreadListener, ConfigMergabilityIndicator {
+
+	// Thread variable holding the time the last publish() call was held back, add it to sample_variables to log it
+	public static final String PUBLISH_BLOCKED_MICROS = "publishBlockedMicros";
 
 	private static final long serialVersionUID = -2509242423429019193L;
 	private static final Logger LOGGER = LoggerFactory.getLogger(PublisherSampler.class);
+	private static final int ATTRIBUTES_CACHE_SIZE = 64;
+	// Longest wait for acks still in flight when a thread reports its last interval, as long as the pool shutdown waits
+	private static final long ACK_DRAIN_TIMEOUT_MS = 30_000;
 
 	private Publisher publisher = null;
+	private PublisherPool publisherPool = null;
+	private PublishAckCollector ackCollector = null;
+	private LatencyRecorder ackLatencyRecorder = null;
+	private LatencyRecorder blockedRecorder = null;
+	private PayloadCache payloadCache = null;
+	private boolean payloadCached = false;
+	private MappedPayloadFeed payloadFeed = null;
+	private int feedPartition = 0;
+	private boolean observing = false;
+	private transient SamplePackage samplePackage = null;
+	private AttributesCache attributesCache = null;
+	private SyntheticPayloadRing payloadRing = null;
+	private Map<String, String> generatedAttributes = Collections.emptyMap();
+	private long sequence = 0;
+	// Random per sampler clone, names the sequence stream of this thread for loss and duplicate detection
+	private final String publisherId = String.format("%016x", ThreadLocalRandom.current().nextLong());
+	private String threadOrderingKey = null;
+	private long handOverNanos = 0;
+	private PubsubMessage published = null;
 	private static final Set<String> APPLIABLE_CONFIG_CLASSES = new HashSet<>(
 			Arrays.asList("org.apache.jmeter.config.gui.SimpleConfigGui"));
 
 	@Override
 	public SampleResult sample(Entry e) {
-		PubsubMessage template = null;
-		Map<String, String> attributes = null;
-		byte[] byteMsg;
-		SampleResult result = new SampleResult();
-		result.setSampleLabel(getName());
-		result.setSamplerData(request());
-		result.setDataType(SampleResult.TEXT);
-		result.setContentType("text/plain");
-		result.setDataEncoding(StandardCharsets.UTF_8.name());
-		
+		Map<String, String> attributes;
+		EncodedPayload payload;
+
+		SampleResult result;
+		if (PUBLISH_MODE_OBSERVE.equals(getPublishMode())) {
+			return observe();
+		}
 		try {
-			attributes = convertStringToAttributesMap(getAttributes());
-		} catch (JsonParseException e1) {
-			e1.printStackTrace();
-		} catch (JsonMappingException e1) {
-			e1.printStackTrace();
-		} catch (IOException e1) {
-			e1.printStackTrace();
+			attributes = getAttributesCache().get(getAttributes());
+			payload = nextPayload();
+		} catch (IllegalArgumentException | IllegalStateException | UncheckedIOException ex) {
+			result = newResult();
+			result.sampleStart();
+			result.sampleEnd();
+			return handleException(result, ex);
+		}
+
+		if (payload == null) {
+			LOGGER.info(String.format("%s: end of payload feed %s reached, stopping thread", getName(), getFeedFile()));
+			JMeterContextService.getContext().getThread().stop();
+			return null;
 		}
 
-		if (isGzipCompression()) {
-			byteMsg = createEventCompressed(getMessage());
-		} else {
-			byteMsg = ByteString.copyFromUtf8(getMessage()).toByteArray();
+		if (PUBLISH_MODE_ASYNC.equals(getPublishMode())) {
+			return publishAsync(payload, attributes);
 		}
 
+		result = newResult();
+		result.setSamplerData(request(payload));
 		result.sampleStart();
 
 		try {
-			template = createPubsubMessage(byteMsg, attributes);
-			publish(template, result);
+			publish(payload, attributes, result);
+			if (payload.getCodec() != null) {
+				result.setResponseHeaders(result.getResponseHeaders() + "\n" + payload.describe(payloadCached));
+			}
 
 		} catch (Exception ex) {
 			LOGGER.info("Exception occurred while publishing message");
@@ -101,44 +151,97 @@ public class PublisherSampler extends PublisherTestElement implements Sampler, T
 		return result;
 	}
 
-	@SuppressWarnings("unchecked")
-	private Map<String, String> convertStringToAttributesMap(String attributes) throws JsonParseException, JsonMappingException, IOException {
-		
-		if(!attributes.equals("")) {
-			return (HashMap<String, String>) new ObjectMapper().readValue(attributes, Map.class);
-			
+	private SampleResult newResult() {
+		SampleResult result = new SampleResult();
+		result.setSampleLabel(getName());
+		result.setDataType(SampleResult.TEXT);
+		result.setContentType("text/plain");
+		result.setDataEncoding(StandardCharsets.UTF_8.name());
+		return result;
+	}
+
+	private AttributesCache getAttributesCache() {
+		if (attributesCache == null) {
+			attributesCache = new AttributesCache(ATTRIBUTES_CACHE_SIZE);
 		}
+		return attributesCache;
+	}
 
-		return Collections.emptyMap();
+	// Returns the payload for this sample, or null when the feed file is exhausted and does not wrap
+	private EncodedPayload nextPayload() {
+		if (PAYLOAD_SOURCE_GENERATOR.equals(getPayloadSource())) {
+			SyntheticPayloadRing.Entry entry = getPayloadRing().next();
+			generatedAttributes = entry.getAttributes();
+			payloadCached = true;
+			return entry.getPayload();
+		}
+		if (!PAYLOAD_SOURCE_FEED.equals(getPayloadSource())) {
+			return getPayload(getMessage());
+		}
+		ByteString record = getPayloadFeed().next(feedPartition, FEED_AT_END_WRAP.equals(getFeedAtEnd()));
+		payloadCached = false;
+		return record == null ? null : EncodedPayload.encode(record, PayloadCodecs.get(getCodecName()));
 	}
 
-	// Returns Modified templates/Message as template for publishing
-	private byte[] createEventCompressed(String message) {
-		// BufferedWriter zipWriter = null;
-		try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(message.length())) {
-			try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
-				gzipOutputStream.write(message.getBytes(StandardCharsets.UTF_8));
-				gzipOutputStream.close();
+	// Opened on the sampler thread, the partition is fixed then so the rate engine thread can read it too
+	private MappedPayloadFeed getPayloadFeed() {
+		if (payloadFeed == null) {
+			int partitions = 1;
+			if (FEED_PARTITIONING_PER_THREAD.equals(getFeedPartitioning())) {
+				partitions = JMeterContextService.getContext().getThreadGroup().getNumThreads();
 			}
-			return byteArrayOutputStream.toByteArray();
-		} catch (IOException e) {
-			throw new RuntimeException("Failed to zip content", e);
+			feedPartition = JMeterContextService.getContext().getThreadNum();
+			payloadFeed = MappedPayloadFeed.open(getFeedFile(), getFeedFormat(), partitions);
 		}
+		return payloadFeed;
 	}
 
-	private String publish(PubsubMessage template, SampleResult result) {
-		String resp = null;
-		ApiFuture<String> future = null;
-		if (this.publisher == null) {
-			this.publisher = (Publisher) JMeterContextService.getContext().getVariables()
-					.getObject(getPublisherClientObject());
+	private SyntheticPayloadRing getPayloadRing() {
+		if (payloadRing == null) {
+			payloadRing = SyntheticPayloadRing.get(getGeneratorSizes(), getGeneratorContent(),
+					Integer.parseInt(getGeneratorRingSize()), getGeneratorAttributeCount(),
+					PayloadCodecs.get(getCodecName()));
+		}
+		return payloadRing;
+	}
+
+	// Returns the encoded payload for the message, identical texts are encoded and compressed only once
+	private EncodedPayload getPayload(String message) {
+		if (payloadCache == null) {
+			payloadCache = new PayloadCache(Integer.parseInt(getPayloadCacheSize()));
+		}
+		String codecName = getCodecName();
+		EncodedPayload payload = payloadCache.get(message, codecName);
+		payloadCached = payload != null;
+		if (payload == null) {
+			payload = EncodedPayload.encode(ByteString.copyFromUtf8(message), PayloadCodecs.get(codecName));
+			payloadCache.put(message, codecName, payload);
 		}
+		return payload;
+	}
+
+	// The legacy gzip flag selects gzip when no other codec is chosen
+	private String getCodecName() {
+		String codec = getCodec();
+		if (codec == null || codec.trim().isEmpty() || PayloadCodecs.NONE.equals(codec.trim())) {
+			return isGzipCompression() ? PayloadCodecs.GZIP : PayloadCodecs.NONE;
+		}
+		return codec.trim();
+	}
 
+	private void publish(EncodedPayload payload, Map<String, String> attributes, SampleResult result) {
 		try {
 
-			future = publisher.publish(template);
-			result.setResponseHeaders("MessagePublishedID: " + future.get());
-			result.setResponseData(template.toString(), StandardCharsets.UTF_8.name());
+			ApiFuture<String> future = handOver(payload, attributes);
+			long blockedNanos = System.nanoTime() - handOverNanos;
+			recordBlocked(blockedNanos);
+			JMeterContextService.getContext().getVariables().put(PUBLISH_BLOCKED_MICROS,
+					Long.toString(TimeUnit.NANOSECONDS.toMicros(blockedNanos)));
+			String messageId = future.get();
+			recordAckLatency(System.nanoTime() - handOverNanos);
+			result.setResponseHeaders("MessagePublishedID: " + messageId + "\nBlockedMicros: "
+					+ TimeUnit.NANOSECONDS.toMicros(blockedNanos));
+			result.setResponseData(published.toString(), StandardCharsets.UTF_8.name());
 			result.setSuccessful(true);
 			result.setResponseCode("200");
 			result.setResponseMessageOK();
@@ -147,10 +250,255 @@ public class PublisherSampler extends PublisherTestElement implements Sampler, T
 			LOGGER.info("Publisher config not initialized properly.. Check the config element");
 			handleException(result, e);
 		} catch (InterruptedException e) {
-			e.printStackTrace();
+			Thread.currentThread().interrupt();
+			LOGGER.warn(String.format("%s: interrupted while waiting for the publish ack", getName()));
+			handleException(result, e);
+		}
+	}
+
+	// Builds the message and hands it to the client. Messages with an ordering key get the key's next
+	// sequence and are handed over under the key's lock, so the client sees them in sequence order
+	private ApiFuture<String> handOver(EncodedPayload payload, Map<String, String> attributes) {
+		final PubsubMessage.Builder builder = buildMessage(payload, attributes);
+		try {
+			return handOver(builder);
+		} catch (RuntimeException ex) {
+			// The sequence was taken, the subscriber must not report it as lost
+			SequenceTracker.recordPublishFailure(builder);
+			throw ex;
+		}
+	}
+
+	private ApiFuture<String> handOver(final PubsubMessage.Builder builder) {
+		final String orderingKey = nextOrderingKey();
+		final Publisher client = getPublisher(orderingKey);
+		handOverNanos = System.nanoTime();
+		if (orderingKey == null) {
+			published = builder.build();
+			ApiFuture<String> future = client.publish(published);
+			SequenceTracker.trackPublish(future, published);
+			return future;
+		}
+		builder.setOrderingKey(orderingKey);
+		ApiFuture<String> future = OrderingKeySequences.inOrder(getPublisherClientObject(), orderingKey, sequence -> {
+			published = builder.putAttributes(MessageAttributes.KEY_SEQUENCE, Long.toString(sequence)).build();
+			return client.publish(published);
+		});
+		SequenceTracker.trackPublish(future, builder);
+		// A failed publish pauses the key in the client until it is resumed
+		ApiFutures.addCallback(future, new ApiFutureCallback<String>() {
+			@Override
+			public void onSuccess(String messageId) {
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				client.resumePublish(orderingKey);
+			}
+		}, MoreExecutors.directExecutor());
+		return future;
+	}
+
+	// Returns the ordering key of this sample, or null to publish without one
+	private String nextOrderingKey() {
+		String mode = getOrderingKeyMode();
+		if (ORDERING_KEY_FIXED.equals(mode)) {
+			return emptyToNull(getOrderingKey());
+		}
+		if (ORDERING_KEY_VARIABLE.equals(mode)) {
+			return emptyToNull(JMeterContextService.getContext().getVariables().get(getOrderingKey()));
 		}
+		if (ORDERING_KEY_THREAD_HASH.equals(mode)) {
+			if (threadOrderingKey == null) {
+				int keys = Math.max(1, Integer.parseInt(getOrderingKeyCount()));
+				threadOrderingKey = getOrderingKey() + Math.floorMod(JMeterContextService.getContext().getThreadNum(), keys);
+			}
+			return threadOrderingKey;
+		}
+		return null;
+	}
 
-		return resp;
+	private static String emptyToNull(String value) {
+		return value == null || value.isEmpty() ? null : value;
+	}
+
+	// Reports the aggregates of the connection's rate engine, the first observing thread supplies its messages
+	private SampleResult observe() {
+		RatePublishEngine engine = RatePublishEngine.get(getPublisherClientObject());
+		if (engine == null) {
+			SampleResult result = newResult();
+			result.sampleStart();
+			result.sampleEnd();
+			return handleException(result, new IllegalStateException(
+					"No rate engine for " + getPublisherClientObject() + ", set the rate mode of the publisher config"));
+		}
+		if (engine.isFinished()) {
+			LOGGER.info(String.format("%s: rate engine finished, stopping thread", getName()));
+			JMeterContextService.getContext().getThread().stop();
+			return drain(engine.getCollector());
+		}
+		if (!observing) {
+			observing = true;
+			samplePackage = currentSamplePackage();
+			try {
+				if (PAYLOAD_SOURCE_FEED.equals(getPayloadSource())) {
+					getPayloadFeed();
+				}
+				engine.start(this::scheduledMessage);
+			} catch (IllegalArgumentException | UncheckedIOException ex) {
+				SampleResult result = newResult();
+				result.sampleStart();
+				result.sampleEnd();
+				return handleException(result, ex);
+			}
+		}
+		try {
+			return engine.getCollector().await(getName());
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	// Called on the rate engine thread, the send timestamp is the intended send time of the slot
+	private PubsubMessage scheduledMessage(long intendedNanos) {
+		EncodedPayload payload = nextPayload();
+		if (payload == null) {
+			return null;
+		}
+		PubsubMessage.Builder builder = buildMessage(payload, getAttributesCache().get(getAttributes()));
+		if (isStampSendTime()) {
+			builder.putAttributes(MessageAttributes.SEND_TIMESTAMP, Long.toString(EpochClock.toEpochMicros(intendedNanos)));
+		}
+		return builder.build();
+	}
+
+	// Hands the message over to the client without waiting, acks are reported by the collector per interval
+	private SampleResult publishAsync(EncodedPayload payload, Map<String, String> attributes) {
+		if (ackCollector == null) {
+			ackCollector = new PublishAckCollector(Long.parseLong(getReportInterval()), getAckLatencyRecorder());
+			samplePackage = currentSamplePackage();
+		}
+
+		try {
+			ApiFuture<String> future = handOver(payload, attributes);
+			long blockedNanos = System.nanoTime() - handOverNanos;
+			recordBlocked(blockedNanos);
+			ackCollector.onHandOver(blockedNanos);
+			ApiFutures.addCallback(future, ackCollector.callback(handOverNanos, published.getSerializedSize()),
+					MoreExecutors.directExecutor());
+		} catch (Exception ex) {
+			LOGGER.info("Exception occurred while handing message over to the publisher");
+			ackCollector.onError(ex);
+		}
+		return ackCollector.poll(getName());
+	}
+
+	// Final aggregate of the acks since the last report, waiting for those still in flight
+	private SampleResult drain(PublishAckCollector collector) {
+		try {
+			return collector.drain(getName(), ACK_DRAIN_TIMEOUT_MS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	private static SamplePackage currentSamplePackage() {
+		Object pack = JMeterContextService.getContext().getVariables().getObject(JMeterThread.PACKAGE_OBJECT);
+		return pack instanceof SamplePackage ? (SamplePackage) pack : null;
+	}
+
+	// Hands the last interval of an async or observing thread to this sampler's listeners, as no sample() call returns it
+	@Override
+	public void threadFinished() {
+		PublishAckCollector collector = ackCollector;
+		if (collector == null && observing) {
+			RatePublishEngine engine = RatePublishEngine.get(getPublisherClientObject());
+			collector = engine == null ? null : engine.getCollector();
+		}
+		SampleResult result = collector == null ? null : drain(collector);
+		// After the drain, so failures of the acks still in flight are included
+		if (isSequenceAttribute()) {
+			String failures = SequenceTracker.describePublishFailures(publisherId);
+			if (failures != null) {
+				// Subscribers in another JVM report these sequences as missing, the log tells them from losses
+				LOGGER.warn(String.format("%s: publisher %s %s", getName(), publisherId, failures));
+			}
+		}
+		if (result == null) {
+			return;
+		}
+		JMeterContext context = JMeterContextService.getContext();
+		if (samplePackage == null || context.getThread() == null) {
+			LOGGER.info(String.format("%s: final ack interval %s", getName(), result.getResponseDataAsString().trim()));
+			return;
+		}
+		context.getThread().getNotifier().notifyListeners(
+				new SampleEvent(result, context.getThreadGroup().getName(), context.getVariables()),
+				samplePackage.getSampleListeners());
+	}
+
+	@Override
+	public void threadStarted() {
+	}
+
+	private void recordAckLatency(long nanos) {
+		LatencyRecorder recorder = getAckLatencyRecorder();
+		if (recorder != null) {
+			recorder.recordNanos(nanos);
+		}
+	}
+
+	// Time spent inside publish(), which grows when flow control holds the caller back
+	private void recordBlocked(long nanos) {
+		if (blockedRecorder == null) {
+			blockedRecorder = LatencyRecorder.get(getPublisherClientObject() + PublisherConfig.PUBLISH_BLOCKED_SUFFIX);
+		}
+		if (blockedRecorder != null) {
+			blockedRecorder.recordNanos(nanos);
+		}
+	}
+
+	private LatencyRecorder getAckLatencyRecorder() {
+		if (this.ackLatencyRecorder == null) {
+			this.ackLatencyRecorder = LatencyRecorder.get(getPublisherClientObject() + PublisherConfig.ACK_LATENCY_SUFFIX);
+		}
+		return this.ackLatencyRecorder;
+	}
+
+	// Picks the client from the connection's pool, configs without a pool leave it in the thread variables
+	private Publisher getPublisher(String orderingKey) {
+		if (this.publisherPool == null) {
+			this.publisherPool = PublisherPool.get(getPublisherClientObject());
+		}
+		if (this.publisherPool != null) {
+			return orderingKey != null ? this.publisherPool.acquireForOrderingKey(orderingKey)
+					: this.publisherPool.acquire(JMeterContextService.getContext().getThread().getThreadName());
+		}
+		if (this.publisher == null) {
+			this.publisher = (Publisher) JMeterContextService.getContext().getVariables()
+					.getObject(getPublisherClientObject());
+		}
+		return this.publisher;
+	}
+
+	// Adds the measurement attributes right before hand-over so the send timestamp excludes payload preparation
+	private PubsubMessage.Builder buildMessage(EncodedPayload payload, Map<String, String> attributes) {
+		final PubsubMessage.Builder builder = PubsubMessage.newBuilder().setData(payload.getData())
+				.putAllAttributes(attributes).putAllAttributes(generatedAttributes);
+		if (payload.getCodec() != null) {
+			builder.putAttributes(MessageAttributes.CODEC, payload.getCodec());
+		}
+		AttributesCache.forEachOverlay(getAttributeOverlay(), builder::putAttributes);
+		if (isSequenceAttribute()) {
+			builder.putAttributes(MessageAttributes.PUBLISHER_ID, publisherId);
+			builder.putAttributes(MessageAttributes.SEQUENCE, Long.toString(sequence++));
+		}
+		if (isStampSendTime()) {
+			builder.putAttributes(MessageAttributes.SEND_TIMESTAMP, Long.toString(EpochClock.epochMicros()));
+		}
+		return builder;
 	}
 
 	public static PubsubMessage createPubsubMessage(byte[] msg, Map<String, String> attributes) {
@@ -158,8 +506,17 @@ public class PublisherSampler extends PublisherTestElement implements Sampler, T
 		return PubsubMessage.newBuilder().setData(ByteString.copyFrom(msg)).putAllAttributes(attributes).build();
 	}
 
-	private String request() {
+	private String request(EncodedPayload payload) {
 		StringBuilder requestBody = new StringBuilder();
+		if (PAYLOAD_SOURCE_FEED.equals(getPayloadSource())) {
+			requestBody.append("FeedRecord: ").append(payload.getRawSize()).append(" bytes from ").append(getFeedFile()).append("\n");
+			return requestBody.toString();
+		}
+		if (PAYLOAD_SOURCE_GENERATOR.equals(getPayloadSource())) {
+			requestBody.append("GeneratedPayload: ").append(payload.getRawSize()).append(" bytes, ")
+					.append(generatedAttributes.size()).append(" attributes\n");
+			return requestBody.toString();
+		}
 		requestBody.append("PublishedMessage: \n").append(getMessage()).append("\n");
 		return requestBody.toString();
 	}
@@ -179,24 +536,41 @@ public class PublisherSampler extends PublisherTestElement implements Sampler, T
 		return APPLIABLE_CONFIG_CLASSES.contains(guiClass);
 	}
 
+	// Attributes without variables are validated once here so a broken value stops the test before it starts,
+	// the synthetic payload ring is built here too so its cost is not paid by the first samples
 	@Override
 	public void testStarted() {
-		// TODO Auto-generated method stub
+		String text = getAttributes();
+		try {
+			if (text != null && !text.contains("${")) {
+				AttributesCache.parse(text);
+			}
+			if (PAYLOAD_SOURCE_GENERATOR.equals(getPayloadSource())) {
+				getPayloadRing();
+			}
+		} catch (IllegalArgumentException | UncheckedIOException e) {
+			LOGGER.error(String.format("%s: %s, stopping the test", getName(), e.getMessage()));
+			StandardJMeterEngine.stopEngine();
+		}
 	}
 
 	@Override
 	public void testStarted(String host) {
-		// TODO Auto-generated method stub
+		testStarted();
 	}
 
+	// Publisher configs may end after the samplers, they unmap the feeds once their clients terminated
 	@Override
 	public void testEnded() {
-		// TODO Auto-generated method stub
+		if (PublisherPool.isIdle()) {
+			MappedPayloadFeed.closeAll(true);
+		}
+		SyntheticPayloadRing.clear();
 	}
 
 	@Override
 	public void testEnded(String host) {
-		// TODO Auto-generated method stub
+		testEnded();
 	}
 
 }
@@ -29,11 +29,45 @@ public abstract class PublisherTestElement extends AbstractTestElement implement
 
 
 	private static final long serialVersionUID = 7027549399338665744L;
+
+	public static final String PUBLISH_MODE_SYNC = "sync";
+	public static final String PUBLISH_MODE_ASYNC = "async";
+	public static final String PUBLISH_MODE_OBSERVE = "observe";
+	public static final String PAYLOAD_SOURCE_MESSAGE = "message";
+	public static final String PAYLOAD_SOURCE_FEED = "feedFile";
+	public static final String PAYLOAD_SOURCE_GENERATOR = "generator";
+	public static final String FEED_AT_END_WRAP = "wrap";
+	public static final String FEED_AT_END_STOP = "stopThread";
+	public static final String FEED_PARTITIONING_SHARED = "shared";
+	public static final String FEED_PARTITIONING_PER_THREAD = "perThread";
+	public static final String ORDERING_KEY_NONE = "none";
+	public static final String ORDERING_KEY_FIXED = "fixed";
+	public static final String ORDERING_KEY_VARIABLE = "variable";
+	public static final String ORDERING_KEY_THREAD_HASH = "threadHash";
 	
 	private boolean gzipCompression;
+	private String codec;
 	private String message;
 	private String publisherClientObject;
 	private String attributes;
+	private String publishMode;
+	private String reportInterval;
+	private boolean stampSendTime;
+	private boolean sequenceAttribute;
+	private String payloadCacheSize;
+	private String attributeOverlay;
+	private String payloadSource;
+	private String feedFile;
+	private String feedFormat;
+	private String feedAtEnd;
+	private String feedPartitioning;
+	private String generatorSizes;
+	private String generatorContent;
+	private String generatorRingSize;
+	private String generatorAttributeCount;
+	private String orderingKeyMode;
+	private String orderingKey;
+	private String orderingKeyCount;
 	
 	public String getMessage() {
 		return message;
@@ -60,6 +94,14 @@ public abstract class PublisherTestElement extends AbstractTestElement implement
 		this.gzipCompression = gzipCompression;
 	}
 
+	public String getCodec() {
+		return codec;
+	}
+
+	public void setCodec(String codec) {
+		this.codec = codec;
+	}
+
 	public String getPublisherClientObject() {
 		return publisherClientObject;
 	}
@@ -68,6 +110,148 @@ public abstract class PublisherTestElement extends AbstractTestElement implement
 		this.publisherClientObject = publisherClientObject;
 	}
 
+	public String getPublishMode() {
+		return publishMode;
+	}
+
+	public void setPublishMode(String publishMode) {
+		this.publishMode = publishMode;
+	}
+
+	public String getReportInterval() {
+		return reportInterval;
+	}
+
+	public void setReportInterval(String reportInterval) {
+		this.reportInterval = reportInterval;
+	}
+
+	public boolean isStampSendTime() {
+		return stampSendTime;
+	}
+
+	public void setStampSendTime(boolean stampSendTime) {
+		this.stampSendTime = stampSendTime;
+	}
+
+	public boolean isSequenceAttribute() {
+		return sequenceAttribute;
+	}
+
+	public void setSequenceAttribute(boolean sequenceAttribute) {
+		this.sequenceAttribute = sequenceAttribute;
+	}
+
+	public String getAttributeOverlay() {
+		return attributeOverlay;
+	}
+
+	public void setAttributeOverlay(String attributeOverlay) {
+		this.attributeOverlay = attributeOverlay;
+	}
+
+	public String getPayloadCacheSize() {
+		return payloadCacheSize;
+	}
+
+	public void setPayloadCacheSize(String payloadCacheSize) {
+		this.payloadCacheSize = payloadCacheSize;
+	}
+
+	public String getPayloadSource() {
+		return payloadSource;
+	}
+
+	public void setPayloadSource(String payloadSource) {
+		this.payloadSource = payloadSource;
+	}
+
+	public String getFeedFile() {
+		return feedFile;
+	}
+
+	public void setFeedFile(String feedFile) {
+		this.feedFile = feedFile;
+	}
+
+	public String getFeedFormat() {
+		return feedFormat;
+	}
 
+	public void setFeedFormat(String feedFormat) {
+		this.feedFormat = feedFormat;
+	}
+
+	public String getFeedAtEnd() {
+		return feedAtEnd;
+	}
+
+	public void setFeedAtEnd(String feedAtEnd) {
+		this.feedAtEnd = feedAtEnd;
+	}
+
+	public String getFeedPartitioning() {
+		return feedPartitioning;
+	}
+
+	public void setFeedPartitioning(String feedPartitioning) {
+		this.feedPartitioning = feedPartitioning;
+	}
+
+	public String getGeneratorSizes() {
+		return generatorSizes;
+	}
+
+	public void setGeneratorSizes(String generatorSizes) {
+		this.generatorSizes = generatorSizes;
+	}
+
+	public String getGeneratorContent() {
+		return generatorContent;
+	}
+
+	public void setGeneratorContent(String generatorContent) {
+		this.generatorContent = generatorContent;
+	}
+
+	public String getGeneratorRingSize() {
+		return generatorRingSize;
+	}
+
+	public void setGeneratorRingSize(String generatorRingSize) {
+		this.generatorRingSize = generatorRingSize;
+	}
+
+	public String getGeneratorAttributeCount() {
+		return generatorAttributeCount;
+	}
+
+	public void setGeneratorAttributeCount(String generatorAttributeCount) {
+		this.generatorAttributeCount = generatorAttributeCount;
+	}
+
+	public String getOrderingKeyMode() {
+		return orderingKeyMode;
+	}
+
+	public void setOrderingKeyMode(String orderingKeyMode) {
+		this.orderingKeyMode = orderingKeyMode;
+	}
+
+	public String getOrderingKey() {
+		return orderingKey;
+	}
+
+	public void setOrderingKey(String orderingKey) {
+		this.orderingKey = orderingKey;
+	}
+
+	public String getOrderingKeyCount() {
+		return orderingKeyCount;
+	}
+
+	public void setOrderingKeyCount(String orderingKeyCount) {
+		this.orderingKeyCount = orderingKeyCount;
+	}
 
 }
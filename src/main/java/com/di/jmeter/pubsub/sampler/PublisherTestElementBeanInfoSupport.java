@@ -24,12 +24,20 @@ import org.apache.jmeter.testbeans.BeanInfoSupport;
 import org.apache.jmeter.testbeans.TestBean;
 import org.apache.jmeter.testbeans.gui.TypeEditor;
 
+import com.di.jmeter.pubsub.codec.PayloadCodecs;
+import com.di.jmeter.pubsub.utils.MappedPayloadFeed;
+import com.di.jmeter.pubsub.utils.SyntheticPayloadRing;
+
 public class PublisherTestElementBeanInfoSupport extends BeanInfoSupport {
 
 	protected PublisherTestElementBeanInfoSupport(Class<? extends TestBean> beanClass) {
 		super(beanClass);
 
-		createPropertyGroup("Message to publish", new String[] { "publisherClientObject", "gzipCompression", "attributes", "message"});
+		createPropertyGroup("Message to publish", new String[] { "publisherClientObject", "gzipCompression", "codec", "payloadCacheSize", "attributes", "attributeOverlay", "message"});
+		createPropertyGroup("Payload source", new String[] { "payloadSource", "feedFile", "feedFormat", "feedAtEnd", "feedPartitioning", "generatorSizes", "generatorContent", "generatorRingSize", "generatorAttributeCount" });
+		createPropertyGroup("Ordering", new String[] { "orderingKeyMode", "orderingKey", "orderingKeyCount" });
+		createPropertyGroup("Publish mode", new String[] { "publishMode", "reportInterval" });
+		createPropertyGroup("Measurement", new String[] { "stampSendTime", "sequenceAttribute" });
 		
 		PropertyDescriptor propertyDescriptor =  property("message", TypeEditor.TextAreaEditor);
         propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
@@ -39,6 +47,15 @@ public class PublisherTestElementBeanInfoSupport extends BeanInfoSupport {
         propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
         propertyDescriptor.setValue(DEFAULT, Boolean.FALSE);
         
+        propertyDescriptor =  property("codec", TypeEditor.ComboStringEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, PayloadCodecs.NONE);
+        propertyDescriptor.setValue(TAGS, PayloadCodecs.names());
+        
+        propertyDescriptor =  property("payloadCacheSize");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "64");
+        
         propertyDescriptor =  property("publisherClientObject", TypeEditor.ComboStringEditor);
         propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
         propertyDescriptor.setValue(DEFAULT, "");
@@ -46,6 +63,96 @@ public class PublisherTestElementBeanInfoSupport extends BeanInfoSupport {
         propertyDescriptor = property("attributes", TypeEditor.TextAreaEditor);
         propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
         propertyDescriptor.setValue("default", "");
+
+        propertyDescriptor = property("attributeOverlay", TypeEditor.TextAreaEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "");
+
+        propertyDescriptor = property("payloadSource", TypeEditor.ComboStringEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, PublisherTestElement.PAYLOAD_SOURCE_MESSAGE);
+        propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+        propertyDescriptor.setValue(TAGS, new String[] { PublisherTestElement.PAYLOAD_SOURCE_MESSAGE,
+                PublisherTestElement.PAYLOAD_SOURCE_FEED, PublisherTestElement.PAYLOAD_SOURCE_GENERATOR });
+
+        propertyDescriptor = property("feedFile", TypeEditor.FileEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "");
+
+        propertyDescriptor = property("feedFormat", TypeEditor.ComboStringEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, MappedPayloadFeed.FORMAT_NEWLINE);
+        propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+        propertyDescriptor.setValue(TAGS, new String[] { MappedPayloadFeed.FORMAT_NEWLINE,
+                MappedPayloadFeed.FORMAT_LENGTH_PREFIXED });
+
+        propertyDescriptor = property("feedAtEnd", TypeEditor.ComboStringEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, PublisherTestElement.FEED_AT_END_WRAP);
+        propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+        propertyDescriptor.setValue(TAGS, new String[] { PublisherTestElement.FEED_AT_END_WRAP,
+                PublisherTestElement.FEED_AT_END_STOP });
+
+        propertyDescriptor = property("feedPartitioning", TypeEditor.ComboStringEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, PublisherTestElement.FEED_PARTITIONING_SHARED);
+        propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+        propertyDescriptor.setValue(TAGS, new String[] { PublisherTestElement.FEED_PARTITIONING_SHARED,
+                PublisherTestElement.FEED_PARTITIONING_PER_THREAD });
+
+        propertyDescriptor = property("generatorSizes");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "lognormal:1024,1.0");
+
+        propertyDescriptor = property("generatorContent", TypeEditor.ComboStringEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, SyntheticPayloadRing.CONTENT_RANDOM);
+        propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+        propertyDescriptor.setValue(TAGS, new String[] { SyntheticPayloadRing.CONTENT_RANDOM,
+                SyntheticPayloadRing.CONTENT_COMPRESSIBLE });
+
+        propertyDescriptor = property("generatorRingSize");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "1024");
+
+        propertyDescriptor = property("generatorAttributeCount");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "0");
+
+        propertyDescriptor = property("orderingKeyMode", TypeEditor.ComboStringEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, PublisherTestElement.ORDERING_KEY_NONE);
+        propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+        propertyDescriptor.setValue(TAGS, new String[] { PublisherTestElement.ORDERING_KEY_NONE,
+                PublisherTestElement.ORDERING_KEY_FIXED, PublisherTestElement.ORDERING_KEY_VARIABLE,
+                PublisherTestElement.ORDERING_KEY_THREAD_HASH });
+
+        propertyDescriptor = property("orderingKey");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "");
+
+        propertyDescriptor = property("orderingKeyCount");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "16");
+
+        propertyDescriptor = property("publishMode", TypeEditor.ComboStringEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, PublisherTestElement.PUBLISH_MODE_SYNC);
+        propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+        propertyDescriptor.setValue(TAGS, new String[] { PublisherTestElement.PUBLISH_MODE_SYNC,
+                PublisherTestElement.PUBLISH_MODE_ASYNC, PublisherTestElement.PUBLISH_MODE_OBSERVE });
+
+        propertyDescriptor = property("reportInterval");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "1000");
+
+        propertyDescriptor = property("stampSendTime");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, Boolean.FALSE);
+
+        propertyDescriptor = property("sequenceAttribute");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, Boolean.FALSE);
         
 	}
 
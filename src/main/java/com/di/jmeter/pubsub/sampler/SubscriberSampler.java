@@ -18,16 +18,15 @@
 
 package com.di.jmeter.pubsub.sampler;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.jmeter.config.ConfigTestElement;
 import org.apache.jmeter.engine.util.ConfigMergabilityIndicator;
@@ -39,20 +38,42 @@ import org.apache.jmeter.testelement.TestElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.di.jmeter.pubsub.codec.PayloadCodec;
+import com.di.jmeter.pubsub.codec.PayloadCodecs;
 import com.di.jmeter.pubsub.config.SubscriberConfig;
+import com.di.jmeter.pubsub.utils.ConsumeCounter;
+import com.di.jmeter.pubsub.utils.CorrelationIndex;
+import com.di.jmeter.pubsub.utils.DeliveryLatencyStats;
+import com.di.jmeter.pubsub.utils.DeliveryTimings;
+import com.di.jmeter.pubsub.utils.HashedTimerWheel;
+import com.di.jmeter.pubsub.utils.LatencyRecorder;
+import com.di.jmeter.pubsub.utils.MessageAttributes;
 import com.di.jmeter.pubsub.utils.MessagesQueue;
+import com.di.jmeter.pubsub.utils.ReceivedMessage;
+import com.di.jmeter.pubsub.utils.SyncPuller;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Empty;
 import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.PullResponse;
 
 public class SubscriberSampler extends SubscriberTestElement implements Sampler, TestBean, ConfigMergabilityIndicator {
 
 	private static final long serialVersionUID = 7189759970130154866L;
 	private static final Logger LOGGER = LoggerFactory.getLogger(SubscriberSampler.class);
+	private static final long DEFAULT_POLL_TIMEOUT_MS = 1000;
 	private static final Set<String> APPLIABLE_CONFIG_CLASSES = new HashSet<>(
 			Arrays.asList("org.apache.jmeter.config.gui.SimpleConfigGui"));
 
 	private MessagesQueue messagesQueue;
-	private static PubsubMessage reader;
-	private String ackDelay;
+	private DeliveryLatencyStats latencyStats;
+	private HashedTimerWheel ackTimer;
+	private LatencyRecorder ackLatency;
+	private LatencyRecorder deliveryLatency;
+	private PubsubMessage reader;
 	private boolean decompression;
 	private String subscriberObject;
 	
@@ -67,8 +88,24 @@ public class SubscriberSampler extends SubscriberTestElement implements Sampler,
 		result.setContentType("text/plain");
 		result.setDataEncoding(StandardCharsets.UTF_8.name());
 
-		if (Integer.parseInt(getAckDelay()) > 1) {
-			ackDelay = getAckDelay();
+		SyncPuller puller = SubscriberConfig.getSyncPuller(getSubscriberObject());
+		if (puller != null) {
+			return pull(puller, result);
+		}
+
+		CorrelationIndex correlationIndex = SubscriberConfig.getCorrelationIndex(getSubscriberObject());
+		if (correlationIndex != null) {
+			return awaitCorrelated(correlationIndex, result);
+		}
+
+		ConsumeCounter counter = SubscriberConfig.getConsumeCounter(getSubscriberObject());
+		if (counter != null) {
+			try {
+				return counter.await(getName());
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
 		}
 
 		result.sampleStart();
@@ -94,40 +131,319 @@ public class SubscriberSampler extends SubscriberTestElement implements Sampler,
 		}
 
 		try {
-			reader = messagesQueue.take();
-			if (isDecompression()) {
-				result.setResponseData(createDeCompressedMessage(reader.toByteArray()),
-						StandardCharsets.UTF_8.name());
-			} else {
-				result.setResponseData(reader.toString(), StandardCharsets.UTF_8.name());
+			ReceivedMessage received = messagesQueue.poll(parseOrDefault(getPollTimeout(), DEFAULT_POLL_TIMEOUT_MS),
+					TimeUnit.MILLISECONDS);
+			if (received == null) {
+				result.setResponseCode("408");
+				result.setResponseMessage("No message received within " + getPollTimeout() + " ms");
+				result.setSuccessful(false);
+				return null;
+			}
+			int maxMessages = (int) parseOrDefault(getMaxMessagesPerSample(), 1);
+			if (maxMessages > 1) {
+				List<ReceivedMessage> batch = new ArrayList<>(Math.min(maxMessages, 1024));
+				batch.add(received);
+				messagesQueue.drainTo(batch, maxMessages - 1);
+				boolean processed = false;
+				try {
+					PubsubMessage last = readBatch(batch, result);
+					processed = true;
+					return last;
+				} finally {
+					for (ReceivedMessage message : batch) {
+						settle(message, processed);
+					}
+				}
+			}
+			boolean processed = false;
+			try {
+				reader = readOne(received, result);
+				processed = true;
+			} finally {
+				appendHeaders(result, settle(received, processed));
 			}
-			result.setResponseHeaders("PublishedMessageID: " + reader.getMessageId() + "\npublish_time in "+reader.getPublishTime());
-			result.setSuccessful(true);
-			result.setResponseCode("200");
-			result.setResponseMessageOK();
 
 		} catch (InterruptedException e) {
 			LOGGER.info(String.format("Error in reading message from the Message queue " + e));
-			e.printStackTrace();
+			Thread.currentThread().interrupt();
+			result.setResponseMessage("Interrupted while waiting for a message");
+			result.setSuccessful(false);
 		}
 
 		return reader;
 	}
 
-	private String createDeCompressedMessage(byte[] message) throws IOException {
-		String output = null;
-		StringBuffer resultBuffer = new StringBuffer();
-		try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(message)) {
-			try (GZIPInputStream gZIPInputStream = new GZIPInputStream(byteArrayInputStream)) {
-				BufferedReader br = new BufferedReader(new InputStreamReader(gZIPInputStream));
-				while ((output = br.readLine()) != null) {
-					resultBuffer.append(output);
+	private PubsubMessage readOne(ReceivedMessage received, SampleResult result) throws IOException {
+		DeliveryTimings timings = DeliveryTimings.of(received, System.nanoTime());
+		String codecInfo = render(received, result);
+		result.setResponseHeaders("PublishedMessageID: " + received.getMessageId() + publishTimeHeader(received)
+				+ timings + codecInfo);
+		recordTimings(result, timings);
+		result.setSuccessful(true);
+		result.setResponseCode("200");
+		result.setResponseMessageOK();
+		return received.getMessage();
+	}
+
+	// The sample time is the wait for the message carrying this sampler's correlation id
+	private SampleResult awaitCorrelated(CorrelationIndex index, SampleResult result) {
+		String correlationId = getCorrelationId();
+		result.sampleStart();
+		try {
+			ReceivedMessage received = index.await(correlationId, parseOrDefault(getPollTimeout(), DEFAULT_POLL_TIMEOUT_MS),
+					TimeUnit.MILLISECONDS);
+			result.sampleEnd();
+			if (received == null) {
+				result.setResponseCode("408");
+				result.setResponseMessage("No message with correlation id " + correlationId + " within " + getPollTimeout() + " ms");
+				result.setSuccessful(false);
+				return result;
+			}
+			boolean processed = false;
+			try {
+				reader = readOne(received, result);
+				processed = true;
+			} finally {
+				appendHeaders(result, settle(received, processed));
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			result.sampleEnd();
+			result.setResponseMessage("Interrupted while waiting for a message");
+			result.setSuccessful(false);
+		} catch (IOException ex) {
+			LOGGER.info("Exception Occurred while reading message");
+			handleException(result, ex);
+		}
+		return result;
+	}
+
+	// The sample time is the Pull RPC alone, the returned messages are acked in one RPC afterwards
+	private SampleResult pull(SyncPuller puller, SampleResult result) {
+		PullResponse response;
+		result.sampleStart();
+		try {
+			response = puller.pull((int) parseOrDefault(getMaxMessagesPerSample(), 1));
+		} catch (ApiException ex) {
+			result.sampleEnd();
+			LOGGER.info("Exception Occurred while pulling messages");
+			return handleException(result, ex);
+		}
+		result.sampleEnd();
+		if (response.getReceivedMessagesCount() == 0) {
+			result.setResponseCode("408");
+			result.setResponseMessage("Pull returned no messages");
+			result.setSuccessful(false);
+			return result;
+		}
+		if (deliveryLatency == null) {
+			deliveryLatency = LatencyRecorder.get(getSubscriberObject() + SubscriberConfig.DELIVERY_LATENCY_SUFFIX);
+		}
+		List<ReceivedMessage> batch = new ArrayList<>(response.getReceivedMessagesCount());
+		List<String> ackIds = new ArrayList<>(response.getReceivedMessagesCount());
+		for (com.google.pubsub.v1.ReceivedMessage pulled : response.getReceivedMessagesList()) {
+			ReceivedMessage received = new ReceivedMessage(pulled.getMessage());
+			if (deliveryLatency != null && received.getPublishEpochMicros() > 0) {
+				deliveryLatency.record(received.getReceiveEpochMicros() - received.getPublishEpochMicros());
+			}
+			batch.add(received);
+			ackIds.add(pulled.getAckId());
+		}
+		boolean processed = false;
+		try {
+			if (batch.size() == 1) {
+				reader = readOne(batch.get(0), result);
+			} else {
+				reader = readBatch(batch, result);
+			}
+			processed = true;
+		} catch (IOException ex) {
+			LOGGER.info("Exception Occurred while reading message");
+			handleException(result, ex);
+		} finally {
+			appendHeaders(result, settle(puller, ackIds, batch, processed));
+		}
+		return result;
+	}
+
+	private static void appendHeaders(SampleResult result, String lines) {
+		result.setResponseHeaders(result.getResponseHeaders().isEmpty() ? lines.trim() : result.getResponseHeaders() + lines);
+	}
+
+	// One result for the whole batch: sample count and bytes are totals, latency and connect time are means
+	private PubsubMessage readBatch(List<ReceivedMessage> batch, SampleResult result) throws IOException {
+		long takeNanos = System.nanoTime();
+		long bytes = 0;
+		long endToEndSum = 0;
+		int endToEndCount = 0;
+		long dwellSum = 0;
+		for (ReceivedMessage received : batch) {
+			DeliveryTimings timings = DeliveryTimings.of(received, takeNanos);
+			recordStats(timings);
+			bytes += received.getSize();
+			dwellSum += timings.getQueueDwell();
+			if (timings.getEndToEnd() >= 0) {
+				endToEndSum += timings.getEndToEnd();
+				endToEndCount++;
+			}
+			if (isBatchSubResults()) {
+				result.addRawSubResult(subResult(received, timings));
+			}
+		}
+		ReceivedMessage last = batch.get(batch.size() - 1);
+		result.setResponseData(String.format("messages: %d%nbytes: %d%nfirstMessageID: %s%nlastMessageID: %s%n",
+				batch.size(), bytes, batch.get(0).getMessageId(), last.getMessageId()),
+				StandardCharsets.UTF_8.name());
+		result.setBytes(bytes);
+		result.setSampleCount(batch.size());
+		if (endToEndCount > 0) {
+			result.setLatency(endToEndSum / endToEndCount / 1000);
+		}
+		result.setConnectTime(dwellSum / batch.size() / 1000);
+		result.setSuccessful(true);
+		result.setResponseCode("200");
+		result.setResponseMessageOK();
+		return last.getMessage();
+	}
+
+	private SampleResult subResult(ReceivedMessage received, DeliveryTimings timings) throws IOException {
+		SampleResult sub = new SampleResult();
+		sub.setSampleLabel(getName() + "-" + received.getMessageId());
+		sub.setDataType(SampleResult.TEXT);
+		sub.setContentType("text/plain");
+		sub.setDataEncoding(StandardCharsets.UTF_8.name());
+		sub.setStampAndTime(System.currentTimeMillis(), 0);
+		String codecInfo = render(received, sub);
+		sub.setResponseHeaders("PublishedMessageID: " + received.getMessageId() + publishTimeHeader(received)
+				+ timings + codecInfo);
+		if (timings.getEndToEnd() >= 0) {
+			sub.setLatency(timings.getEndToEnd() / 1000);
+		}
+		sub.setConnectTime(timings.getQueueDwell() / 1000);
+		sub.setSuccessful(true);
+		sub.setResponseCode("200");
+		sub.setResponseMessageOK();
+		return sub;
+	}
+
+	// Replies to a message whose ack was deferred to the sampler, directly or through the timer wheel, and returns the header lines.
+	// A message the sampler failed to process is nacked at once, so it is redelivered instead of waiting out its lease
+	private String settle(ReceivedMessage received, boolean processed) {
+		if (!received.isAckPending()) {
+			return "";
+		}
+		if (ackTimer == null) {
+			ackTimer = SubscriberConfig.getAckTimer(getSubscriberObject());
+			ackLatency = LatencyRecorder.get(getSubscriberObject() + SubscriberConfig.ACK_LATENCY_SUFFIX);
+		}
+		if (!processed) {
+			recordAck(received.reply(false));
+			return String.format("%nackReply: %s", ACK_REPLY_NACK);
+		}
+		final boolean ack = !ACK_REPLY_NACK.equals(getAckReply());
+		long delayMs = parseOrDefault(getAckDelay(), 0);
+		if (delayMs > 0 && ackTimer != null) {
+			ackTimer.schedule(() -> recordAck(received.reply(ack)), delayMs, TimeUnit.MILLISECONDS);
+			return String.format("%nackReply: %s%nackDelayMs: %d", ack ? ACK_REPLY_ACK : ACK_REPLY_NACK, delayMs);
+		}
+		long latencyNanos = received.reply(ack);
+		recordAck(latencyNanos);
+		return String.format("%nackReply: %s%nackLatencyMicros: %d", ack ? ACK_REPLY_ACK : ACK_REPLY_NACK, latencyNanos / 1000);
+	}
+
+	// Acks or nacks the ack ids of one pull, directly or through the timer wheel, and returns the header lines.
+	// Ack latency runs until the RPC completed, a pull the sampler failed to process is nacked at once
+	private String settle(SyncPuller puller, List<String> ackIds, List<ReceivedMessage> batch, boolean processed) {
+		if (ackTimer == null) {
+			ackTimer = SubscriberConfig.getAckTimer(getSubscriberObject());
+			ackLatency = LatencyRecorder.get(getSubscriberObject() + SubscriberConfig.ACK_LATENCY_SUFFIX);
+		}
+		final boolean ack = processed && !ACK_REPLY_NACK.equals(getAckReply());
+		final long receiveNanos = batch.get(0).getReceiveNanos();
+		final int count = batch.size();
+		long delayMs = processed ? parseOrDefault(getAckDelay(), 0) : 0;
+		Runnable reply = () -> ApiFutures.addCallback(puller.reply(ackIds, ack), new ApiFutureCallback<Empty>() {
+			@Override
+			public void onSuccess(Empty empty) {
+				long latencyNanos = System.nanoTime() - receiveNanos;
+				for (int i = 0; i < count; i++) {
+					recordAck(latencyNanos);
 				}
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
+
+			@Override
+			public void onFailure(Throwable t) {
+				// counted by the puller
+			}
+		}, MoreExecutors.directExecutor());
+		if (delayMs > 0 && ackTimer != null) {
+			ackTimer.schedule(reply, delayMs, TimeUnit.MILLISECONDS);
+			return String.format("%nackReply: %s%nackDelayMs: %d", ack ? ACK_REPLY_ACK : ACK_REPLY_NACK, delayMs);
+		}
+		reply.run();
+		return String.format("%nackReply: %s", ack ? ACK_REPLY_ACK : ACK_REPLY_NACK);
+	}
+
+	private void recordAck(long latencyNanos) {
+		if (ackLatency != null) {
+			ackLatency.recordNanos(latencyNanos);
+		}
+	}
+
+	private static long parseOrDefault(String value, long defaultValue) {
+		return value == null || value.trim().isEmpty() ? defaultValue : Long.parseLong(value.trim());
+	}
+
+	private String render(ReceivedMessage received, SampleResult result) throws IOException {
+		if (received.isMetadataOnly()) {
+			result.setResponseData(String.format("messageId: %s%npublishTimeMicros: %d%nsize: %d%n", received.getMessageId(),
+					received.getPublishEpochMicros(), received.getSize()), StandardCharsets.UTF_8.name());
+			return "";
+		}
+		return renderMessage(received.getMessage(), result);
+	}
+
+	private static String publishTimeHeader(ReceivedMessage received) {
+		if (received.isMetadataOnly()) {
+			return "\npublish_time_us: " + received.getPublishEpochMicros();
+		}
+		return "\npublish_time in " + received.getMessage().getPublishTime();
+	}
+
+	// Decodes the data with the codec named by the message, or gzip when decompression is forced, and returns the codec stats
+	private String renderMessage(PubsubMessage message, SampleResult result) throws IOException {
+		String codecName = message.getAttributesOrDefault(MessageAttributes.CODEC,
+				isDecompression() ? PayloadCodecs.GZIP : PayloadCodecs.NONE);
+		PayloadCodec codec = PayloadCodecs.get(codecName);
+		if (codec == null) {
+			result.setResponseData(message.toString(), StandardCharsets.UTF_8.name());
+			return "";
+		}
+		long start = System.nanoTime();
+		ByteString decoded = codec.decode(message.getData());
+		long decodeNanos = System.nanoTime() - start;
+		result.setResponseData(decoded.toStringUtf8(), StandardCharsets.UTF_8.name());
+		return String.format("%ncodec: %s%nencodedBytes: %d%ndecodedBytes: %d%ncompressionRatio: %.3f%ndecodeMicros: %d",
+				codec.getName(), message.getData().size(), decoded.size(),
+				message.getData().isEmpty() ? 1.0 : (double) decoded.size() / message.getData().size(), decodeNanos / 1000);
+	}
+
+	// Latency is the publish-to-take time, connect time the dwell time in the local queue
+	private void recordTimings(SampleResult result, DeliveryTimings timings) {
+		recordStats(timings);
+		if (timings.getEndToEnd() >= 0) {
+			result.setLatency(timings.getEndToEnd() / 1000);
+		}
+		result.setConnectTime(timings.getQueueDwell() / 1000);
+	}
+
+	private void recordStats(DeliveryTimings timings) {
+		if (latencyStats == null) {
+			latencyStats = SubscriberConfig.getLatencyStats(getSubscriberObject());
+		}
+		if (latencyStats != null) {
+			latencyStats.record(timings);
 		}
-		return resultBuffer.toString();
 	}
 
 	private SampleResult handleException(SampleResult result, Exception ex) {
@@ -166,14 +482,6 @@ public class SubscriberSampler extends SubscriberTestElement implements Sampler,
 		return APPLIABLE_CONFIG_CLASSES.contains(guiClass);
 	}
 
-	public String getAckDelay() {
-		return ackDelay;
-	}
-
-	public void setAckDelay(String ackDelay) {
-		this.ackDelay = ackDelay;
-	}
-
 	public boolean isDecompression() {
 		return decompression;
 	}
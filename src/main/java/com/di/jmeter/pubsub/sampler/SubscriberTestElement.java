@@ -28,7 +28,15 @@ import org.apache.jmeter.testelement.TestStateListener;
 public abstract class SubscriberTestElement extends AbstractTestElement implements TestStateListener, TestElement, Serializable, Searchable {
 
 	private static final long serialVersionUID = -6951161193102820427L;
-	private static String ackDelay;
+	public static final String ACK_REPLY_ACK = "ack";
+	public static final String ACK_REPLY_NACK = "nack";
+
+	private String ackDelay;
+	private String ackReply;
+	private String pollTimeout;
+	private String maxMessagesPerSample;
+	private boolean batchSubResults;
+	private String correlationId;
 	
 	
 // ===== Getters and Setters =====
@@ -38,11 +46,51 @@ public abstract class SubscriberTestElement extends AbstractTestElement implemen
 	}
 
 	public void setAckDelay(String ackDelay) {
-		if(Integer.parseInt(ackDelay)>0) {
-			SubscriberTestElement.ackDelay = ackDelay;
+		if(ackDelay != null && !ackDelay.trim().isEmpty() && Integer.parseInt(ackDelay.trim())>0) {
+			this.ackDelay = ackDelay.trim();
 		}else {
-			SubscriberTestElement.ackDelay = "0";
+			this.ackDelay = "0";
 		}
 	}
 
+	public String getAckReply() {
+		return ackReply;
+	}
+
+	public void setAckReply(String ackReply) {
+		this.ackReply = ackReply;
+	}
+
+	public String getPollTimeout() {
+		return pollTimeout;
+	}
+
+	public void setPollTimeout(String pollTimeout) {
+		this.pollTimeout = pollTimeout;
+	}
+
+	public String getMaxMessagesPerSample() {
+		return maxMessagesPerSample;
+	}
+
+	public void setMaxMessagesPerSample(String maxMessagesPerSample) {
+		this.maxMessagesPerSample = maxMessagesPerSample;
+	}
+
+	public boolean isBatchSubResults() {
+		return batchSubResults;
+	}
+
+	public void setBatchSubResults(boolean batchSubResults) {
+		this.batchSubResults = batchSubResults;
+	}
+
+	public String getCorrelationId() {
+		return correlationId;
+	}
+
+	public void setCorrelationId(String correlationId) {
+		this.correlationId = correlationId;
+	}
+
 }
@@ -22,18 +22,27 @@ import java.beans.PropertyDescriptor;
 
 import org.apache.jmeter.testbeans.BeanInfoSupport;
 import org.apache.jmeter.testbeans.TestBean;
+import org.apache.jmeter.testbeans.gui.TypeEditor;
 
 public class SubscriberTestElementBeanInfoSupport extends BeanInfoSupport {
 	
 	protected SubscriberTestElementBeanInfoSupport(Class<? extends TestBean> beanClass) {
 		super(beanClass);
 
-		createPropertyGroup("Subscriber Properties", new String[] { "subscriberObject", "ackDelay", "decompression"});
+		createPropertyGroup("Subscriber Properties", new String[] { "subscriberObject", "ackDelay", "ackReply", "decompression"});
+		createPropertyGroup("Batch", new String[] { "pollTimeout", "maxMessagesPerSample", "batchSubResults" });
+		createPropertyGroup("Correlation", new String[] { "correlationId" });
 		 
         PropertyDescriptor propertyDescriptor =  property("ackDelay");
         propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
         propertyDescriptor.setValue(DEFAULT, "0");
         
+        propertyDescriptor = property("ackReply", TypeEditor.ComboStringEditor);
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, SubscriberTestElement.ACK_REPLY_ACK);
+        propertyDescriptor.setValue(NOT_OTHER, Boolean.TRUE);
+        propertyDescriptor.setValue(TAGS, new String[] { SubscriberTestElement.ACK_REPLY_ACK, SubscriberTestElement.ACK_REPLY_NACK });
+
         propertyDescriptor =  property("decompression");
         propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
         propertyDescriptor.setValue(DEFAULT, Boolean.FALSE);
@@ -41,6 +50,22 @@ public class SubscriberTestElementBeanInfoSupport extends BeanInfoSupport {
         propertyDescriptor =  property("subscriberObject");
         propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
         propertyDescriptor.setValue(DEFAULT, "");
+
+        propertyDescriptor = property("pollTimeout");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "1000");
+
+        propertyDescriptor = property("maxMessagesPerSample");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "1");
+
+        propertyDescriptor = property("batchSubResults");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, Boolean.FALSE);
+
+        propertyDescriptor = property("correlationId");
+        propertyDescriptor.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        propertyDescriptor.setValue(DEFAULT, "");
         
         
         
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Parses attribute JSON objects once per distinct string and keeps the immutable
+ * result. Strings that fail to parse are remembered as well, so a broken value
+ * is reported on every use without being parsed again. Not thread-safe: each
+ * sampler thread owns one, the JSON reader itself is shared.
+ */
+public class AttributesCache {
+
+	private static final ObjectReader READER = new ObjectMapper()
+			.readerFor(new TypeReference<Map<String, String>>() {
+			});
+
+	private final int capacity;
+	private final Map<String, Object> entries;
+	private String lastText;
+	private Map<String, String> lastAttributes;
+
+	public AttributesCache(final int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.entries = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+				return size() > AttributesCache.this.capacity;
+			}
+		};
+	}
+
+	// Returns the parsed attributes, throws IllegalArgumentException if the text is not a JSON object of strings
+	@SuppressWarnings("unchecked")
+	public Map<String, String> get(String text) {
+		if (text == null || text.trim().isEmpty()) {
+			return Collections.emptyMap();
+		}
+		if (text.equals(lastText)) {
+			return lastAttributes;
+		}
+		Object entry = entries.get(text);
+		if (entry == null) {
+			try {
+				entry = parse(text);
+			} catch (IllegalArgumentException e) {
+				entry = e;
+			}
+			entries.put(text, entry);
+		}
+		if (entry instanceof IllegalArgumentException) {
+			throw (IllegalArgumentException) entry;
+		}
+		lastText = text;
+		lastAttributes = (Map<String, String>) entry;
+		return lastAttributes;
+	}
+
+	public static Map<String, String> parse(String text) {
+		if (text == null || text.trim().isEmpty()) {
+			return Collections.emptyMap();
+		}
+		try {
+			Map<String, String> attributes = READER.readValue(text);
+			return attributes == null ? Collections.<String, String>emptyMap()
+					: Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid message attributes, expected a JSON object of strings: " + text, e);
+		}
+	}
+
+	// Parses "key=value" lines, the cheap format used for attributes that change on every sample
+	public static void forEachOverlay(String text, OverlayConsumer consumer) {
+		if (text == null || text.isEmpty()) {
+			return;
+		}
+		int start = 0;
+		int length = text.length();
+		while (start < length) {
+			int end = text.indexOf('\n', start);
+			if (end < 0) {
+				end = length;
+			}
+			int separator = text.indexOf('=', start);
+			if (separator > start && separator < end) {
+				consumer.accept(text.substring(start, separator).trim(), text.substring(separator + 1, end).trim());
+			}
+			start = end + 1;
+		}
+	}
+
+	public interface OverlayConsumer {
+		void accept(String key, String value);
+	}
+
+}
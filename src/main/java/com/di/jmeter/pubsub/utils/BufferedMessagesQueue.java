@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message queue backed by one blocking queue, the linked deque or the
+ * {@link MpmcRingBuffer}.
+ */
+public class BufferedMessagesQueue extends MessagesQueue {
+
+    private final BlockingQueue<ReceivedMessage> messages;
+
+    public BufferedMessagesQueue(int maxQueueSize){
+        this(new LinkedBlockingDeque<>(maxQueueSize));
+    }
+
+    public BufferedMessagesQueue(BlockingQueue<ReceivedMessage> messages){
+        this.messages = messages;
+    }
+
+    @Override
+    public ReceivedMessage take() throws InterruptedException {
+        return messages.take();
+    }
+
+    @Override
+    public ReceivedMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return messages.poll(timeout, unit);
+    }
+
+    @Override
+    public int drainTo(Collection<? super ReceivedMessage> target, int maxMessages) {
+        return messages.drainTo(target, maxMessages);
+    }
+
+    @Override
+    public int getSize(){
+        return messages.size();
+    }
+
+    @Override
+    public boolean offer(ReceivedMessage message){
+        return messages.offer(message);
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the executors publisher and subscriber clients run their callbacks
+ * on. Every executor records the queueing delay of its tasks in a
+ * {@link LatencyRecorder} named after the connection (or
+ * {@value #SHARED_NAME} for the shared executor).
+ */
+public final class CallbackExecutors {
+
+	public static final String MODE_DEFAULT = "default";
+	public static final String MODE_FIXED = "fixed";
+	public static final String MODE_SHARED = "shared";
+	public static final String MODE_VIRTUAL = "virtual";
+	public static final String QUEUE_DELAY_SUFFIX = ".executor-queue";
+	public static final String SHARED_NAME = "pubsub-shared-callbacks";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CallbackExecutors.class);
+
+	private static InstrumentedScheduledExecutor shared;
+	private static int sharedUsers;
+
+	private CallbackExecutors() {
+	}
+
+	// Returns the executor for a connection, or null in default mode where the client keeps its own
+	public static ScheduledExecutorService acquire(String connection, String mode, int threads, long logIntervalMs) {
+		if (MODE_SHARED.equals(mode)) {
+			return acquireShared(threads, logIntervalMs);
+		}
+		if (MODE_VIRTUAL.equals(mode)) {
+			ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+			if (virtual != null) {
+				return new InstrumentedScheduledExecutor(1, connection + "-scheduler",
+						LatencyRecorder.start(connection + QUEUE_DELAY_SUFFIX, logIntervalMs), virtual);
+			}
+			LOGGER.warn(String.format("Virtual threads need Java 21 or later, %s falls back to %d platform threads",
+					connection, threads));
+			mode = MODE_FIXED;
+		}
+		if (MODE_FIXED.equals(mode)) {
+			return new InstrumentedScheduledExecutor(threads, connection + "-callback",
+					LatencyRecorder.start(connection + QUEUE_DELAY_SUFFIX, logIntervalMs), null);
+		}
+		return null;
+	}
+
+	// Shuts down an executor returned by acquire, the shared one only when its last user releases it
+	public static void release(String connection, ScheduledExecutorService executor) {
+		if (executor == null) {
+			return;
+		}
+		if (executor == shared) {
+			releaseShared();
+			return;
+		}
+		executor.shutdown();
+		LatencyRecorder.finish(connection + QUEUE_DELAY_SUFFIX, null);
+	}
+
+	private static synchronized ScheduledExecutorService acquireShared(int threads, long logIntervalMs) {
+		if (shared == null) {
+			shared = new InstrumentedScheduledExecutor(threads, SHARED_NAME,
+					LatencyRecorder.start(SHARED_NAME + QUEUE_DELAY_SUFFIX, logIntervalMs), null);
+			LOGGER.info(String.format("Started shared callback executor with %d threads", threads));
+		}
+		sharedUsers++;
+		return shared;
+	}
+
+	private static synchronized void releaseShared() {
+		if (--sharedUsers > 0) {
+			return;
+		}
+		shared.shutdown();
+		shared = null;
+		LatencyRecorder.finish(SHARED_NAME + QUEUE_DELAY_SUFFIX, null);
+	}
+
+	// Looked up reflectively as the plugin is built for Java 8
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+}
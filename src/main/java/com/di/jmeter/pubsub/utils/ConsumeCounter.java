@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Striped counters of the messages consumed in count-only mode, updated on the
+ * receiver threads and turned into one aggregate {@link SampleResult} per
+ * report interval. Latency percentiles are kept by the delivery latency recorder.
+ */
+public class ConsumeCounter {
+
+	private final LongAdder messages = new LongAdder();
+	private final LongAdder bytes = new LongAdder();
+	private final LongAdder latencyMicros = new LongAdder();
+	private final LongAdder latencyCount = new LongAdder();
+	private final AtomicLong maxLatencyMicros = new AtomicLong();
+	private final AtomicLong intervalStart = new AtomicLong(System.currentTimeMillis());
+	private final long reportIntervalMs;
+
+	public ConsumeCounter(long reportIntervalMs) {
+		this.reportIntervalMs = Math.max(1, reportIntervalMs);
+	}
+
+	// latencyMicros is the publish-to-receive time, negative when the message has no publish time
+	public void onMessage(int size, long latencyMicros) {
+		messages.increment();
+		bytes.add(size);
+		if (latencyMicros >= 0) {
+			this.latencyMicros.add(latencyMicros);
+			latencyCount.increment();
+			if (latencyMicros > maxLatencyMicros.get()) {
+				maxLatencyMicros.accumulateAndGet(latencyMicros, Math::max);
+			}
+		}
+	}
+
+	// Blocks the caller until the running interval is over, then returns its aggregate
+	public SampleResult await(String label) throws InterruptedException {
+		while (true) {
+			long start = intervalStart.get();
+			long now = System.currentTimeMillis();
+			long remaining = reportIntervalMs - (now - start);
+			if (remaining > 0) {
+				TimeUnit.MILLISECONDS.sleep(remaining);
+			} else if (intervalStart.compareAndSet(start, now)) {
+				return snapshot(label, start, now);
+			}
+		}
+	}
+
+	private SampleResult snapshot(String label, long start, long end) {
+		long count = messages.sumThenReset();
+		long totalBytes = bytes.sumThenReset();
+		long latencySum = latencyMicros.sumThenReset();
+		long latencies = latencyCount.sumThenReset();
+		long maxMicros = maxLatencyMicros.getAndSet(0);
+		long meanMicros = latencies > 0 ? latencySum / latencies : 0;
+		double seconds = Math.max(1, end - start) / 1000.0;
+
+		SampleResult result = new SampleResult(start, end - start);
+		result.setSampleLabel(label);
+		result.setDataType(SampleResult.TEXT);
+		result.setContentType("text/plain");
+		result.setDataEncoding(StandardCharsets.UTF_8.name());
+		result.setSampleCount((int) Math.min(Integer.MAX_VALUE, Math.max(1, count)));
+		result.setBytes(totalBytes);
+		result.setLatency(meanMicros / 1000);
+		result.setSuccessful(true);
+		result.setResponseCode("200");
+		result.setResponseMessageOK();
+		result.setResponseData(String.format("messages: %d%nbytes: %d%nmessagesPerSecond: %.1f%nbytesPerSecond: %.1f%nmeanLatencyMicros: %d%nmaxLatencyMicros: %d%n",
+				count, totalBytes, count / seconds, totalBytes / seconds, meanMicros, maxMicros), StandardCharsets.UTF_8.name());
+		return result;
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Receiver of the correlation mode: indexes every message by the value of the
+ * correlation attribute instead of queueing it. Messages without the attribute,
+ * or whose id is already waiting to be claimed, are acked and dropped.
+ */
+public class CorrelatingMessageReceiver implements MessageReceiver {
+
+	private final CorrelationIndex index;
+	private final String correlationAttribute;
+	private final LatencyRecorder deliveryLatency;
+	private final boolean deferAck;
+	private final String[] retainedAttributes;
+
+	// deliveryLatency may be null, retainedAttributes null keeps whole messages
+	public CorrelatingMessageReceiver(CorrelationIndex index, String correlationAttribute, LatencyRecorder deliveryLatency,
+			boolean deferAck, String[] retainedAttributes) {
+		this.index = index;
+		this.correlationAttribute = correlationAttribute;
+		this.deliveryLatency = deliveryLatency;
+		this.deferAck = deferAck;
+		this.retainedAttributes = retainedAttributes;
+	}
+
+	@Override
+	public void receiveMessage(PubsubMessage message, AckReplyConsumer consumer) {
+		String correlationId = message.getAttributesOrDefault(correlationAttribute, null);
+		if (correlationId == null) {
+			consumer.ack();
+			return;
+		}
+		AckReplyConsumer queuedConsumer = deferAck ? consumer : null;
+		ReceivedMessage received = retainedAttributes != null
+				? ReceivedMessage.metadataOnly(message, queuedConsumer, retainedAttributes)
+				: new ReceivedMessage(message, queuedConsumer);
+		if (deliveryLatency != null && message.hasPublishTime()) {
+			deliveryLatency.record(received.getReceiveEpochMicros() - MessageAttributes.toEpochMicros(message.getPublishTime()));
+		}
+		if (!index.offer(correlationId, received) || !deferAck) {
+			consumer.ack();
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Received messages indexed by correlation id, so every sampler waits for its
+ * own reply instead of taking the head of a shared queue. Whichever of the
+ * message and its waiter comes first creates the slot, the other completes or
+ * takes it: one map operation each, no scanning. Messages nobody claims are
+ * evicted after the TTL by a timer wheel and acked.
+ */
+public class CorrelationIndex {
+
+	private static final long TIMER_TICK_MS = 50;
+	private static final int TIMER_TICKS_PER_WHEEL = 512;
+
+	private final ConcurrentMap<String, CompletableFuture<ReceivedMessage>> slots = new ConcurrentHashMap<>();
+	private final HashedTimerWheel evictionTimer;
+	private final long ttlMs;
+	private final LongAdder indexed = new LongAdder();
+	private final LongAdder matched = new LongAdder();
+	private final LongAdder evicted = new LongAdder();
+	private final LongAdder duplicates = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+
+	public CorrelationIndex(String name, long ttlMs) {
+		this.ttlMs = Math.max(1, ttlMs);
+		this.evictionTimer = new HashedTimerWheel(name + "-correlation-ttl", TIMER_TICK_MS, TimeUnit.MILLISECONDS,
+				TIMER_TICKS_PER_WHEEL);
+	}
+
+	// Returns false when a message with this id is already waiting to be claimed
+	public boolean offer(String correlationId, ReceivedMessage message) {
+		CompletableFuture<ReceivedMessage> slot;
+		while (!(slot = slots.computeIfAbsent(correlationId, id -> new CompletableFuture<>())).complete(message)) {
+			if (!slot.isCancelled()) {
+				duplicates.increment();
+				return false;
+			}
+			// The waiter timed out and is leaving, index the message under a fresh slot
+			slots.remove(correlationId, slot);
+		}
+		indexed.increment();
+		final CompletableFuture<ReceivedMessage> indexedSlot = slot;
+		evictionTimer.schedule(() -> evict(correlationId, indexedSlot), ttlMs, TimeUnit.MILLISECONDS);
+		return true;
+	}
+
+	// Waits for the message with this id, returns null on timeout. Removing the slot claims the message, so it is
+	// replied to by either its waiter or the TTL eviction
+	public ReceivedMessage await(String correlationId, long timeout, TimeUnit unit) throws InterruptedException {
+		CompletableFuture<ReceivedMessage> slot = slots.computeIfAbsent(correlationId, id -> new CompletableFuture<>());
+		ReceivedMessage message;
+		try {
+			message = slot.get(timeout, unit);
+		} catch (TimeoutException e) {
+			if (slot.cancel(false)) {
+				slots.remove(correlationId, slot);
+				timeouts.increment();
+				return null;
+			}
+			// The message arrived just as the wait ran out
+			message = slot.join();
+		} catch (InterruptedException e) {
+			if (slot.cancel(false)) {
+				slots.remove(correlationId, slot);
+			} else if (slots.remove(correlationId, slot)) {
+				slot.join().reply(true);
+			}
+			throw e;
+		} catch (ExecutionException e) {
+			slots.remove(correlationId, slot);
+			throw new IllegalStateException(e.getCause());
+		}
+		if (!slots.remove(correlationId, slot)) {
+			// Evicted and acked meanwhile, or claimed by another waiter for the same id
+			timeouts.increment();
+			return null;
+		}
+		matched.increment();
+		return message;
+	}
+
+	private void evict(String correlationId, CompletableFuture<ReceivedMessage> slot) {
+		if (slots.remove(correlationId, slot)) {
+			evicted.increment();
+			slot.join().reply(true);
+		}
+	}
+
+	public int getPending() {
+		return slots.size();
+	}
+
+	public String summary() {
+		return String.format("indexed=%d matched=%d timeouts=%d evicted=%d duplicates=%d pending=%d", indexed.sum(),
+				matched.sum(), timeouts.sum(), evicted.sum(), duplicates.sum(), slots.size());
+	}
+
+	public void close() throws InterruptedException {
+		evictionTimer.stop();
+		slots.clear();
+	}
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Receiver of the count-only mode: acks every message at once and only updates
+ * the counters, nothing is queued for the samplers.
+ */
+public class CountingMessageReceiver implements MessageReceiver {
+
+	private final ConsumeCounter counter;
+	private final LatencyRecorder deliveryLatency;
+	private final OrderingTracker orderingTracker;
+	private final SequenceTracker sequenceTracker;
+
+	// deliveryLatency, orderingTracker and sequenceTracker may be null
+	public CountingMessageReceiver(ConsumeCounter counter, LatencyRecorder deliveryLatency, OrderingTracker orderingTracker,
+			SequenceTracker sequenceTracker) {
+		this.counter = counter;
+		this.deliveryLatency = deliveryLatency;
+		this.orderingTracker = orderingTracker;
+		this.sequenceTracker = sequenceTracker;
+	}
+
+	@Override
+	public void receiveMessage(PubsubMessage message, AckReplyConsumer consumer) {
+		consumer.ack();
+		long latencyMicros = -1;
+		if (message.hasPublishTime()) {
+			latencyMicros = EpochClock.toEpochMicros(System.nanoTime()) - MessageAttributes.toEpochMicros(message.getPublishTime());
+			if (deliveryLatency != null) {
+				deliveryLatency.record(latencyMicros);
+			}
+		}
+		if (orderingTracker != null) {
+			orderingTracker.record(message);
+		}
+		if (sequenceTracker != null) {
+			sequenceTracker.record(message);
+		}
+		counter.onMessage(message.getData().size(), latencyMicros);
+	}
+
+}
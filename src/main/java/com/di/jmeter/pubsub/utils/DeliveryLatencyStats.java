@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+/**
+ * Per-stage latency histograms of the messages taken by the subscriber samplers of one connection.
+ */
+public class DeliveryLatencyStats {
+
+	private final LatencyHistogram publishToServer = new LatencyHistogram();
+	private final LatencyHistogram serverToReceive = new LatencyHistogram();
+	private final LatencyHistogram queueDwell = new LatencyHistogram();
+	private final LatencyHistogram endToEnd = new LatencyHistogram();
+
+	public void record(DeliveryTimings timings) {
+		recordIfKnown(publishToServer, timings.getPublishToServer());
+		recordIfKnown(serverToReceive, timings.getServerToReceive());
+		recordIfKnown(queueDwell, timings.getQueueDwell());
+		recordIfKnown(endToEnd, timings.getEndToEnd());
+	}
+
+	private static void recordIfKnown(LatencyHistogram histogram, long micros) {
+		if (micros >= 0) {
+			histogram.record(micros);
+		}
+	}
+
+	public String summary() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("publish->server: ").append(publishToServer.summary()).append("\n");
+		builder.append("server->receive: ").append(serverToReceive.summary()).append("\n");
+		builder.append("receive->take:   ").append(queueDwell.summary()).append("\n");
+		builder.append("end-to-end:      ").append(endToEnd.summary());
+		return builder.toString();
+	}
+
+}
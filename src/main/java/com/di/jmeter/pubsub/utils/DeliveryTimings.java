@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+/**
+ * Latency breakdown of one delivered message, all values in microseconds.
+ * Stages that cannot be measured (e.g. no send timestamp attribute) are -1.
+ */
+public class DeliveryTimings {
+
+	private final long publishToServer;
+	private final long serverToReceive;
+	private final long queueDwell;
+	private final long endToEnd;
+
+	private DeliveryTimings(long publishToServer, long serverToReceive, long queueDwell, long endToEnd) {
+		this.publishToServer = publishToServer;
+		this.serverToReceive = serverToReceive;
+		this.queueDwell = queueDwell;
+		this.endToEnd = endToEnd;
+	}
+
+	public static DeliveryTimings of(ReceivedMessage received, long takeNanos) {
+		long sendMicros = MessageAttributes.parseLong(received.getAttribute(MessageAttributes.SEND_TIMESTAMP));
+		long publishMicros = received.getPublishEpochMicros();
+		long takeMicros = EpochClock.toEpochMicros(takeNanos);
+
+		long publishToServer = sendMicros > 0 && publishMicros > 0 ? publishMicros - sendMicros : -1;
+		long serverToReceive = publishMicros > 0 ? received.getReceiveEpochMicros() - publishMicros : -1;
+		long queueDwell = (takeNanos - received.getReceiveNanos()) / 1000;
+		long origin = sendMicros > 0 ? sendMicros : publishMicros;
+		long endToEnd = origin > 0 ? takeMicros - origin : -1;
+		return new DeliveryTimings(publishToServer, serverToReceive, queueDwell, endToEnd);
+	}
+
+	public long getPublishToServer() {
+		return publishToServer;
+	}
+
+	public long getServerToReceive() {
+		return serverToReceive;
+	}
+
+	public long getQueueDwell() {
+		return queueDwell;
+	}
+
+	public long getEndToEnd() {
+		return endToEnd;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("publishToServer_us: %d%nserverToReceive_us: %d%nqueueDwell_us: %d%nendToEnd_us: %d",
+				publishToServer, serverToReceive, queueDwell, endToEnd);
+	}
+
+}
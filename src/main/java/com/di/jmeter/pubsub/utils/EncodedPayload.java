@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import com.di.jmeter.pubsub.codec.PayloadCodec;
+import com.google.protobuf.ByteString;
+
+/**
+ * Message data ready to publish, with the codec applied and the cost of encoding it.
+ */
+public class EncodedPayload {
+
+	private final ByteString data;
+	private final String codec;
+	private final int rawSize;
+	private final long encodeNanos;
+
+	public EncodedPayload(ByteString data, String codec, int rawSize, long encodeNanos) {
+		this.data = data;
+		this.codec = codec;
+		this.rawSize = rawSize;
+		this.encodeNanos = encodeNanos;
+	}
+
+	// Encodes raw with codec, which may be null for payloads published as they are
+	public static EncodedPayload encode(ByteString raw, PayloadCodec codec) {
+		if (codec == null) {
+			return new EncodedPayload(raw, null, raw.size(), 0);
+		}
+		long start = System.nanoTime();
+		ByteString data = codec.encode(raw);
+		return new EncodedPayload(data, codec.getName(), raw.size(), System.nanoTime() - start);
+	}
+
+	public ByteString getData() {
+		return data;
+	}
+
+	// Returns the codec name, or null when the data is not encoded
+	public String getCodec() {
+		return codec;
+	}
+
+	public int getRawSize() {
+		return rawSize;
+	}
+
+	public long getEncodeNanos() {
+		return encodeNanos;
+	}
+
+	public double getCompressionRatio() {
+		return data.isEmpty() ? 1.0 : (double) rawSize / data.size();
+	}
+
+	public String describe(boolean cached) {
+		return String.format("codec: %s%nrawBytes: %d%nencodedBytes: %d%ncompressionRatio: %.3f%nencodeMicros: %d%n",
+				codec, rawSize, data.size(), getCompressionRatio(), cached ? 0 : encodeNanos / 1000);
+	}
+
+}
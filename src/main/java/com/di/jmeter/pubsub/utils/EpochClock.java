@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microsecond wall clock derived from {@link System#nanoTime()}, so consecutive
+ * readings are monotonic and finer than {@link System#currentTimeMillis()}.
+ */
+public final class EpochClock {
+
+	private static final long BASE_EPOCH_MICROS = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+	private static final long BASE_NANOS = System.nanoTime();
+
+	private EpochClock() {
+	}
+
+	public static long epochMicros() {
+		return BASE_EPOCH_MICROS + (System.nanoTime() - BASE_NANOS) / 1000;
+	}
+
+	public static long toEpochMicros(long nanoTime) {
+		return BASE_EPOCH_MICROS + (nanoTime - BASE_NANOS) / 1000;
+	}
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Gzip encoder/decoder reusing one {@link Deflater}, {@link Inflater} and set of
+ * growable buffers per thread. The only allocation per message is the resulting
+ * {@link ByteString} or {@link String}.
+ */
+public final class GzipEngine {
+
+	private static final ThreadLocal<GzipEngine> ENGINES = ThreadLocal.withInitial(GzipEngine::new);
+	private static final int INITIAL_BUFFER = 64 * 1024;
+	private static final int MAX_RETAINED_BUFFER = 4 * 1024 * 1024;
+	private static final int HEADER_LENGTH = 10;
+	private static final int TRAILER_LENGTH = 8;
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+	private final Inflater inflater = new Inflater(true);
+	private final CRC32 crc = new CRC32();
+	private final CharsetEncoder utf8 = StandardCharsets.UTF_8.newEncoder();
+	private byte[] input = new byte[INITIAL_BUFFER];
+	private byte[] output = new byte[INITIAL_BUFFER];
+
+	private GzipEngine() {
+	}
+
+	// Returns the engine owned by the calling thread
+	public static GzipEngine get() {
+		return ENGINES.get();
+	}
+
+	public ByteString compress(String text) {
+		int length = encodeUtf8(text);
+		return compress(input, length);
+	}
+
+	public ByteString compress(ByteString data) {
+		int length = data.size();
+		input = ensureCapacity(input, length, 0);
+		data.copyTo(input, 0);
+		return compress(input, length);
+	}
+
+	public ByteString decompress(ByteString data) throws ZipException {
+		int length = inflate(data);
+		ByteString result = ByteString.copyFrom(output, 0, length);
+		trimBuffers();
+		return result;
+	}
+
+	public String decompressToString(ByteString data) throws ZipException {
+		int length = inflate(data);
+		String result = new String(output, 0, length, StandardCharsets.UTF_8);
+		trimBuffers();
+		return result;
+	}
+
+	private ByteString compress(byte[] source, int length) {
+		crc.reset();
+		crc.update(source, 0, length);
+		output = ensureCapacity(output, HEADER_LENGTH + length + length / 1000 + 64 + TRAILER_LENGTH, 0);
+		// Same fixed header as java.util.zip.GZIPOutputStream
+		output[0] = (byte) 0x1f;
+		output[1] = (byte) 0x8b;
+		output[2] = Deflater.DEFLATED;
+		for (int i = 3; i < HEADER_LENGTH; i++) {
+			output[i] = 0;
+		}
+		int position = HEADER_LENGTH;
+		deflater.setInput(source, 0, length);
+		deflater.finish();
+		while (!deflater.finished()) {
+			if (position == output.length) {
+				output = ensureCapacity(output, output.length * 2, position);
+			}
+			position += deflater.deflate(output, position, output.length - position);
+		}
+		deflater.reset();
+		output = ensureCapacity(output, position + TRAILER_LENGTH, position);
+		writeIntLE(output, position, (int) crc.getValue());
+		writeIntLE(output, position + 4, length);
+		ByteString result = ByteString.copyFrom(output, 0, position + TRAILER_LENGTH);
+		trimBuffers();
+		return result;
+	}
+
+	// Inflates a gzip member into the output buffer and returns the decompressed length
+	private int inflate(ByteString data) throws ZipException {
+		int length = data.size();
+		input = ensureCapacity(input, length, 0);
+		data.copyTo(input, 0);
+		if (length < HEADER_LENGTH + TRAILER_LENGTH || (input[0] & 0xff) != 0x1f || (input[1] & 0xff) != 0x8b
+				|| input[2] != Deflater.DEFLATED) {
+			throw new ZipException("Not in GZIP format");
+		}
+		int position = skipHeader(input, length);
+
+		inflater.reset();
+		inflater.setInput(input, position, length - position);
+		int produced = 0;
+		try {
+			while (!inflater.finished()) {
+				if (produced == output.length) {
+					output = ensureCapacity(output, output.length * 2, produced);
+				}
+				int count = inflater.inflate(output, produced, output.length - produced);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new ZipException("Unexpected end of GZIP data");
+				}
+				produced += count;
+			}
+		} catch (DataFormatException e) {
+			throw new ZipException(e.getMessage());
+		}
+
+		int trailer = length - inflater.getRemaining();
+		if (length - trailer < TRAILER_LENGTH) {
+			throw new ZipException("Missing GZIP trailer");
+		}
+		crc.reset();
+		crc.update(output, 0, produced);
+		if (readIntLE(input, trailer) != (int) crc.getValue() || readIntLE(input, trailer + 4) != produced) {
+			throw new ZipException("Corrupt GZIP trailer");
+		}
+		return produced;
+	}
+
+	private static int skipHeader(byte[] data, int length) throws ZipException {
+		int flags = data[3] & 0xff;
+		int position = HEADER_LENGTH;
+		if ((flags & FEXTRA) != 0) {
+			position += 2 + ((data[position] & 0xff) | (data[position + 1] & 0xff) << 8);
+		}
+		if ((flags & FNAME) != 0) {
+			while (position < length && data[position++] != 0) {
+				// skip the zero terminated file name
+			}
+		}
+		if ((flags & FCOMMENT) != 0) {
+			while (position < length && data[position++] != 0) {
+				// skip the zero terminated comment
+			}
+		}
+		if ((flags & FHCRC) != 0) {
+			position += 2;
+		}
+		if (position >= length) {
+			throw new ZipException("Corrupt GZIP header");
+		}
+		return position;
+	}
+
+	private int encodeUtf8(String text) {
+		input = ensureCapacity(input, text.length() * 3, 0);
+		ByteBuffer target = ByteBuffer.wrap(input);
+		utf8.reset();
+		CoderResult result = utf8.encode(CharBuffer.wrap(text), target, true);
+		if (result.isError()) {
+			// Unpaired surrogates, fall back to the replacing String encoder
+			byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+			input = ensureCapacity(input, bytes.length, 0);
+			System.arraycopy(bytes, 0, input, 0, bytes.length);
+			return bytes.length;
+		}
+		utf8.flush(target);
+		return target.position();
+	}
+
+	private void trimBuffers() {
+		if (input.length > MAX_RETAINED_BUFFER) {
+			input = new byte[INITIAL_BUFFER];
+		}
+		if (output.length > MAX_RETAINED_BUFFER) {
+			output = new byte[INITIAL_BUFFER];
+		}
+	}
+
+	private static byte[] ensureCapacity(byte[] buffer, int capacity, int preserve) {
+		if (buffer.length >= capacity) {
+			return buffer;
+		}
+		byte[] grown = new byte[Math.max(capacity, buffer.length * 2)];
+		System.arraycopy(buffer, 0, grown, 0, preserve);
+		return grown;
+	}
+
+	private static void writeIntLE(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte) value;
+		buffer[offset + 1] = (byte) (value >>> 8);
+		buffer[offset + 2] = (byte) (value >>> 16);
+		buffer[offset + 3] = (byte) (value >>> 24);
+	}
+
+	private static int readIntLE(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xff) | (buffer[offset + 1] & 0xff) << 8 | (buffer[offset + 2] & 0xff) << 16
+				| (buffer[offset + 3] & 0xff) << 24;
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hashed timer wheel (Varghese and Lauck) for large numbers of short, coarse
+ * delays such as deferred acks. Scheduling is a lock-free enqueue, and a single
+ * worker thread moves new tasks into their bucket and runs the expired ones
+ * once per tick, so pending tasks cost one small object each instead of a
+ * sleeping thread or a heap entry. Tasks fire up to one tick late.
+ */
+public class HashedTimerWheel {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(HashedTimerWheel.class);
+	private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+	private final long tickNanos;
+	private final Timeout[] wheel;
+	private final int mask;
+	private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+	private final long startNanos = System.nanoTime();
+	private final Thread worker;
+	private volatile boolean running = true;
+	private long tick;
+
+	// ticksPerWheel is rounded up to a power of two
+	public HashedTimerWheel(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+		this.tickNanos = Math.max(1, unit.toNanos(tickDuration));
+		int size = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1;
+		this.wheel = new Timeout[size];
+		this.mask = size - 1;
+		this.worker = new Thread(this::run, name);
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	public void schedule(Runnable task, long delay, TimeUnit unit) {
+		scheduled.add(new Timeout(task, System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay))));
+	}
+
+	// Stops the worker, returns the number of tasks that were still pending and will not run
+	public int stop() throws InterruptedException {
+		running = false;
+		worker.interrupt();
+		worker.join(TimeUnit.SECONDS.toMillis(5));
+		int pending = scheduled.size();
+		for (Timeout bucket : wheel) {
+			for (Timeout timeout = bucket; timeout != null; timeout = timeout.next) {
+				pending++;
+			}
+		}
+		return pending;
+	}
+
+	// Stops the worker and runs every pending task now, in no particular order. Returns the number of tasks
+	// dropped because the timeout elapsed first
+	public int flush(long timeout, TimeUnit unit) throws InterruptedException {
+		int pending = stop();
+		if (worker.isAlive()) {
+			// Still running a task, the wheel is not ours to touch
+			return pending;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		int dropped = 0;
+		Timeout task;
+		while ((task = scheduled.poll()) != null) {
+			dropped += runBefore(task, deadline);
+		}
+		for (int i = 0; i < wheel.length; i++) {
+			for (task = wheel[i]; task != null; task = task.next) {
+				dropped += runBefore(task, deadline);
+			}
+			wheel[i] = null;
+		}
+		return dropped;
+	}
+
+	// Returns 1 when the task was dropped
+	private static int runBefore(Timeout timeout, long deadline) {
+		if (System.nanoTime() - deadline > 0) {
+			return 1;
+		}
+		try {
+			timeout.task.run();
+		} catch (RuntimeException e) {
+			LOGGER.warn("Timer task failed", e);
+		}
+		return 0;
+	}
+
+	private void run() {
+		while (running) {
+			long deadline = startNanos + tickNanos * (tick + 1);
+			long remaining;
+			while ((remaining = deadline - System.nanoTime()) > 0 && running) {
+				LockSupport.parkNanos(remaining);
+			}
+			if (!running) {
+				return;
+			}
+			transferScheduled();
+			expire((int) (tick & mask));
+			tick++;
+		}
+	}
+
+	private void transferScheduled() {
+		for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+			Timeout timeout = scheduled.poll();
+			if (timeout == null) {
+				return;
+			}
+			long calculated = timeout.deadline / tickNanos;
+			timeout.rounds = (calculated - tick) / wheel.length;
+			int index = (int) (Math.max(calculated, tick) & mask);
+			timeout.next = wheel[index];
+			wheel[index] = timeout;
+		}
+	}
+
+	private void expire(int index) {
+		Timeout previous = null;
+		Timeout timeout = wheel[index];
+		while (timeout != null) {
+			Timeout next = timeout.next;
+			if (timeout.rounds <= 0) {
+				if (previous == null) {
+					wheel[index] = next;
+				} else {
+					previous.next = next;
+				}
+				try {
+					timeout.task.run();
+				} catch (RuntimeException e) {
+					LOGGER.warn("Timer task failed", e);
+				}
+			} else {
+				timeout.rounds--;
+				previous = timeout;
+			}
+			timeout = next;
+		}
+	}
+
+	private static final class Timeout {
+		private final Runnable task;
+		private final long deadline;
+		private long rounds;
+		private Timeout next;
+
+		Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scheduled executor for client callbacks that records how long every task
+ * waited past its due time before a thread picked it up. When a task executor
+ * is given, every task runs on it instead of the pool threads (used to run
+ * callbacks on one virtual thread per task): immediate tasks are handed over
+ * directly, the pool threads only wait for submitted, delayed and periodic
+ * tasks to become due and then hand them over.
+ */
+public class InstrumentedScheduledExecutor extends ScheduledThreadPoolExecutor {
+
+	private final LatencyRecorder queueDelay;
+	private final ExecutorService taskExecutor;
+
+	// queueDelay may be null, taskExecutor may be null to run every task on the pool threads
+	public InstrumentedScheduledExecutor(int threads, String name, LatencyRecorder queueDelay,
+			ExecutorService taskExecutor) {
+		super(Math.max(1, threads), daemonThreads(name));
+		this.queueDelay = queueDelay;
+		this.taskExecutor = taskExecutor;
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (taskExecutor == null) {
+			super.execute(command);
+			return;
+		}
+		final long submitNanos = System.nanoTime();
+		taskExecutor.execute(() -> {
+			if (queueDelay != null) {
+				queueDelay.recordNanosShared(System.nanoTime() - submitNanos);
+			}
+			command.run();
+		});
+	}
+
+	@Override
+	protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task) {
+		return queueDelay == null && taskExecutor == null ? task : new TimedTask<>(task);
+	}
+
+	@Override
+	protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task) {
+		return queueDelay == null && taskExecutor == null ? task : new TimedTask<>(task);
+	}
+
+	@Override
+	public void shutdown() {
+		super.shutdown();
+		if (taskExecutor != null) {
+			taskExecutor.shutdown();
+		}
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		if (taskExecutor != null) {
+			taskExecutor.shutdownNow();
+		}
+		return super.shutdownNow();
+	}
+
+	private static ThreadFactory daemonThreads(String name) {
+		final AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	// The delay of a due task turns negative while it waits in the queue, so at run time it is its queueing delay.
+	// A periodic task is only rescheduled once its run completed, so handing it over never overlaps two runs
+	private final class TimedTask<V> implements RunnableScheduledFuture<V> {
+		private final RunnableScheduledFuture<V> task;
+
+		TimedTask(RunnableScheduledFuture<V> task) {
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			if (taskExecutor == null) {
+				queueDelay.recordNanos(Math.max(0, -task.getDelay(TimeUnit.NANOSECONDS)));
+				task.run();
+				return;
+			}
+			try {
+				taskExecutor.execute(() -> {
+					if (queueDelay != null) {
+						queueDelay.recordNanosShared(Math.max(0, -task.getDelay(TimeUnit.NANOSECONDS)));
+					}
+					task.run();
+				});
+			} catch (RejectedExecutionException e) {
+				// The task executor is shut down with the scheduler, a task that became due meanwhile runs here
+				task.run();
+			}
+		}
+
+		@Override
+		public boolean isPeriodic() {
+			return task.isPeriodic();
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return task.getDelay(unit);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return task.compareTo(other instanceof TimedTask ? ((TimedTask<?>) other).task : other);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			return task.cancel(mayInterruptIfRunning);
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return task.isCancelled();
+		}
+
+		@Override
+		public boolean isDone() {
+			return task.isDone();
+		}
+
+		@Override
+		public V get() throws InterruptedException, ExecutionException {
+			return task.get();
+		}
+
+		@Override
+		public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			return task.get(timeout, unit);
+		}
+	}
+
+}
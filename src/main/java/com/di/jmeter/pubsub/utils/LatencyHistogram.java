@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear latency histogram (HdrHistogram layout with 64 sub-buckets per
+ * power of two, i.e. better than 2% precision) recording microsecond values.
+ * Recording is lock-free and safe from any number of threads.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 34;
+	static final long MAX_VALUE = (2L * SUB_BUCKET_HALF << MAX_EXPONENT) - 1;
+	static final int BUCKETS = (MAX_EXPONENT + 2) * SUB_BUCKET_HALF;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong totalSum = new AtomicLong();
+	private final AtomicLong maxValue = new AtomicLong();
+
+	public void record(long micros) {
+		long value = Math.min(Math.max(0, micros), MAX_VALUE);
+		counts.incrementAndGet(indexOf(value));
+		totalCount.incrementAndGet();
+		totalSum.addAndGet(value);
+		if (value > maxValue.get()) {
+			maxValue.accumulateAndGet(value, Math::max);
+		}
+	}
+
+	// Moves all recorded values into target, leaving this histogram empty
+	public void drainInto(LatencyHistogram target) {
+		for (int i = 0; i < BUCKETS; i++) {
+			if (counts.get(i) != 0) {
+				target.counts.addAndGet(i, counts.getAndSet(i, 0));
+			}
+		}
+		target.totalCount.addAndGet(totalCount.getAndSet(0));
+		target.totalSum.addAndGet(totalSum.getAndSet(0));
+		target.maxValue.accumulateAndGet(maxValue.getAndSet(0), Math::max);
+	}
+
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			long count = other.counts.get(i);
+			if (count != 0) {
+				counts.addAndGet(i, count);
+			}
+		}
+		totalCount.addAndGet(other.totalCount.get());
+		totalSum.addAndGet(other.totalSum.get());
+		maxValue.accumulateAndGet(other.maxValue.get(), Math::max);
+	}
+
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	public long getMax() {
+		return maxValue.get();
+	}
+
+	public double getMean() {
+		long count = totalCount.get();
+		return count == 0 ? 0 : (double) totalSum.get() / count;
+	}
+
+	public long getValueAtPercentile(double percentile) {
+		long count = totalCount.get();
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestEquivalentValue(i), maxValue.get());
+			}
+		}
+		return maxValue.get();
+	}
+
+	public String summary() {
+		return String.format("count=%d mean=%.1fus p50=%dus p90=%dus p99=%dus p99.9=%dus p99.99=%dus max=%dus",
+				getCount(), getMean(), getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99),
+				getValueAtPercentile(99.9), getValueAtPercentile(99.99), getMax());
+	}
+
+	static int indexOf(long value) {
+		if (value < 2 * SUB_BUCKET_HALF) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return exponent * SUB_BUCKET_HALF + (int) (value >>> exponent);
+	}
+
+	static long highestEquivalentValue(int index) {
+		if (index < 2 * SUB_BUCKET_HALF) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKET_HALF - 1;
+		long mantissa = index - (long) exponent * SUB_BUCKET_HALF;
+		return ((mantissa + 1) << exponent) - 1;
+	}
+
+}
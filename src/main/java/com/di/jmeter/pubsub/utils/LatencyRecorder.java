@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Latency recorder keeping one {@link LatencyHistogram} per recording thread, so
+ * the hot path never contends with other threads. The per-thread histograms are
+ * merged at every interval boundary into one compact log line (count and
+ * percentiles), instead of writing one line per message.
+ */
+public class LatencyRecorder {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LatencyRecorder.class);
+	private static final Map<String, LatencyRecorder> RECORDERS = new ConcurrentHashMap<>();
+	private static final ScheduledExecutorService TICKER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "pubsub-latency-recorder");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final String name;
+	private final Queue<LatencyHistogram> threadHistograms = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<LatencyHistogram> threadHistogram = ThreadLocal.withInitial(this::register);
+	private final LatencyHistogram sharedHistogram = register();
+	private final LatencyHistogram total = new LatencyHistogram();
+	private final List<String> intervals = new ArrayList<>();
+	private long intervalStart = System.currentTimeMillis();
+	private ScheduledFuture<?> tick;
+
+	private LatencyRecorder(String name) {
+		this.name = name;
+	}
+
+	// Creates the recorder and closes an interval every intervalMs, replacing any previous recorder of that name
+	public static LatencyRecorder start(String name, long intervalMs) {
+		LatencyRecorder recorder = new LatencyRecorder(name);
+		long period = Math.max(100, intervalMs);
+		recorder.tick = TICKER.scheduleAtFixedRate(recorder::closeInterval, period, period, TimeUnit.MILLISECONDS);
+		LatencyRecorder previous = RECORDERS.put(name, recorder);
+		if (previous != null) {
+			previous.tick.cancel(false);
+		}
+		return recorder;
+	}
+
+	// Returns the running recorder, or null when none was started under this name
+	public static LatencyRecorder get(String name) {
+		return RECORDERS.get(name);
+	}
+
+	// Stops the recorder and closes its last interval, returns null when none was started
+	public static LatencyRecorder stop(String name) {
+		LatencyRecorder recorder = RECORDERS.remove(name);
+		if (recorder != null) {
+			recorder.tick.cancel(false);
+			recorder.closeInterval();
+		}
+		return recorder;
+	}
+
+	// Stops the recorder, logs its summary and writes the interval log when a file is given
+	public static void finish(String name, String logFile) {
+		LatencyRecorder recorder = stop(name);
+		if (recorder == null) {
+			return;
+		}
+		LOGGER.info(recorder.summary());
+		if (logFile != null && !logFile.trim().isEmpty()) {
+			try {
+				recorder.writeLog(logFile.trim());
+				LOGGER.info(String.format("Latency interval log written to %s", logFile.trim()));
+			} catch (IOException e) {
+				LOGGER.error("Error occurred while writing latency interval log " + logFile, e);
+			}
+		}
+	}
+
+	public void record(long micros) {
+		threadHistogram.get().record(micros);
+	}
+
+	public void recordNanos(long nanos) {
+		threadHistogram.get().record(nanos / 1000);
+	}
+
+	// For short-lived threads (e.g. one virtual thread per task) that would otherwise each allocate a histogram
+	public void recordNanosShared(long nanos) {
+		sharedHistogram.record(nanos / 1000);
+	}
+
+	private LatencyHistogram register() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		threadHistograms.add(histogram);
+		return histogram;
+	}
+
+	synchronized void closeInterval() {
+		LatencyHistogram interval = new LatencyHistogram();
+		for (LatencyHistogram histogram : threadHistograms) {
+			histogram.drainInto(interval);
+		}
+		long now = System.currentTimeMillis();
+		if (interval.getCount() > 0) {
+			total.add(interval);
+			intervals.add(String.format("%d,%.3f,%d,%d,%d,%d,%d,%d,%d", intervalStart, (now - intervalStart) / 1000.0,
+					interval.getCount(), interval.getValueAtPercentile(50), interval.getValueAtPercentile(90),
+					interval.getValueAtPercentile(99), interval.getValueAtPercentile(99.9),
+					interval.getValueAtPercentile(99.99), interval.getMax()));
+		}
+		intervalStart = now;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized String summary() {
+		return name + ": " + total.summary();
+	}
+
+	public synchronized void writeLog(String file) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+			writer.write("#" + summary() + "\n");
+			writer.write("StartTimestamp,Interval_s,Count,P50_us,P90_us,P99_us,P99.9_us,P99.99_us,Max_us\n");
+			for (String interval : intervals) {
+				writer.write(interval);
+				writer.write('\n');
+			}
+		}
+	}
+
+}
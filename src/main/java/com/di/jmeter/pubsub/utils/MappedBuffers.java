@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Releases file mappings eagerly instead of waiting for the buffers to be
+ * garbage collected. The buffer and every slice of it must be unreachable
+ * afterwards, a read of an unmapped buffer crashes the JVM.
+ */
+public final class MappedBuffers {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedBuffers.class);
+
+	private MappedBuffers() {
+	}
+
+	// There is no public API to unmap a buffer: Unsafe.invokeCleaner on Java 9+, the buffer's cleaner on Java 8.
+	// If neither is reachable the mapping stays until the buffer is collected
+	public static void unmap(MappedByteBuffer buffer) {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+			return;
+		} catch (NoSuchMethodException e) {
+			// Java 8, see below
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("Could not unmap buffer: " + e);
+			return;
+		}
+		try {
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (cleaner != null) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.debug("Could not unmap buffer: " + e);
+		}
+	}
+
+}
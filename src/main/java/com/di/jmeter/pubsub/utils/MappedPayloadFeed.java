@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+/**
+ * Memory-mapped file of payloads, either one per line or each prefixed with its
+ * length as a 4 byte big-endian integer. Records are handed out as zero-copy
+ * slices of the mapping through an atomic cursor per partition, so files larger
+ * than the heap can be replayed by any number of threads.
+ */
+public class MappedPayloadFeed implements Closeable {
+
+	public static final String FORMAT_NEWLINE = "newline";
+	public static final String FORMAT_LENGTH_PREFIXED = "lengthPrefixed";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedPayloadFeed.class);
+	private static final Map<String, MappedPayloadFeed> FEEDS = new ConcurrentHashMap<>();
+	private static final long SEGMENT_SIZE = 1L << 30;
+	// Segments overlap by the largest record, so every record lies within one mapping
+	private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+	private final String file;
+	private final boolean lengthPrefixed;
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final long size;
+	private final long[] partitionStart;
+	private final long[] partitionEnd;
+	private final AtomicLong[] cursors;
+
+	private MappedPayloadFeed(String file, String format, int partitions) throws IOException {
+		this.file = file;
+		this.lengthPrefixed = FORMAT_LENGTH_PREFIXED.equals(format);
+		this.channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+		this.size = channel.size();
+		int count = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+		this.segments = new MappedByteBuffer[count];
+		for (int i = 0; i < count; i++) {
+			long start = i * SEGMENT_SIZE;
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, SEGMENT_SIZE + MAX_RECORD_SIZE + 4));
+		}
+		int parts = Math.max(1, partitions);
+		this.partitionStart = new long[parts];
+		this.partitionEnd = new long[parts];
+		this.cursors = new AtomicLong[parts];
+		try {
+			if (lengthPrefixed) {
+				partitionRecords(parts);
+			} else {
+				for (int i = 1; i < parts; i++) {
+					partitionStart[i] = lineStartAtOrAfter(size / parts * i);
+				}
+			}
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+		for (int i = 0; i < parts; i++) {
+			partitionEnd[i] = i + 1 < parts ? partitionStart[i + 1] : size;
+			cursors[i] = new AtomicLong(partitionStart[i]);
+		}
+		LOGGER.info(String.format("Mapped payload feed %s (%d bytes, %s, %d partition(s))", file, size, format, parts));
+	}
+
+	// Returns the shared feed for the file, mapping it on first use
+	public static MappedPayloadFeed open(String file, String format, int partitions) {
+		String key = file + '|' + format + '|' + partitions;
+		return FEEDS.computeIfAbsent(key, k -> {
+			try {
+				return new MappedPayloadFeed(file, format, partitions);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to map payload feed " + file, e);
+			}
+		});
+	}
+
+	// Closes every feed. Only unmap once no publisher can still hold a slice of the mapping,
+	// otherwise the mappings are released when the buffers are garbage collected
+	public static void closeAll(boolean unmap) {
+		for (MappedPayloadFeed feed : FEEDS.values()) {
+			try {
+				feed.close(unmap);
+			} catch (IOException e) {
+				LOGGER.warn("Error occurred while closing payload feed " + feed.file, e);
+			}
+		}
+		FEEDS.clear();
+	}
+
+	public int getPartitions() {
+		return cursors.length;
+	}
+
+	// Returns the next record of the partition, or null at its end unless wrap is set
+	public ByteString next(int partition, boolean wrap) {
+		int index = partition % cursors.length;
+		AtomicLong cursor = cursors[index];
+		long start = partitionStart[index];
+		long end = partitionEnd[index];
+		if (start >= end) {
+			return null;
+		}
+		while (true) {
+			long position = cursor.get();
+			if (position >= end) {
+				if (!wrap) {
+					return null;
+				}
+				cursor.compareAndSet(position, start);
+				continue;
+			}
+			ByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)];
+			int offset = (int) (position % SEGMENT_SIZE);
+			int dataOffset;
+			int dataLength;
+			long next;
+			if (lengthPrefixed) {
+				dataOffset = offset + 4;
+				dataLength = segment.getInt(offset);
+				if (dataLength < 0 || dataLength > MAX_RECORD_SIZE || position + 4 + dataLength > end) {
+					throw new IllegalStateException(String.format("Corrupt length prefix %d at offset %d of %s", dataLength, position, file));
+				}
+				next = position + 4 + dataLength;
+			} else {
+				int limit = (int) Math.min(segment.limit(), offset + (end - position));
+				int newline = offset;
+				while (newline < limit && segment.get(newline) != '\n') {
+					newline++;
+				}
+				if (newline - offset > MAX_RECORD_SIZE) {
+					throw new IllegalStateException(String.format("Line at offset %d of %s exceeds %d bytes", position, file, MAX_RECORD_SIZE));
+				}
+				dataOffset = offset;
+				dataLength = newline - offset;
+				if (dataLength > 0 && segment.get(newline - 1) == '\r') {
+					dataLength--;
+				}
+				next = position + (newline - offset) + 1;
+			}
+			if (cursor.compareAndSet(position, next)) {
+				ByteBuffer slice = segment.duplicate();
+				slice.limit(dataOffset + dataLength).position(dataOffset);
+				return UnsafeByteOperations.unsafeWrap(slice.slice());
+			}
+		}
+	}
+
+	// Walks the length prefixes once and starts each partition at the first record at or after its share of the file
+	private void partitionRecords(int parts) throws IOException {
+		long record = 0;
+		for (int i = 1; i < parts; i++) {
+			long position = size / parts * i;
+			while (record < position && record < size) {
+				if (size - record < 4) {
+					throw new IOException(String.format("Truncated length prefix at offset %d of %s", record, file));
+				}
+				ByteBuffer segment = segments[(int) (record / SEGMENT_SIZE)];
+				int length = segment.getInt((int) (record % SEGMENT_SIZE));
+				if (length < 0 || length > MAX_RECORD_SIZE || length > size - record - 4) {
+					throw new IOException(String.format("Corrupt length prefix %d at offset %d of %s", length, record, file));
+				}
+				record += 4 + length;
+			}
+			partitionStart[i] = Math.min(record, size);
+		}
+	}
+
+	// Finds the first line start at or after position
+	private long lineStartAtOrAfter(long position) {
+		long record = Math.max(1, position);
+		while (record < size) {
+			ByteBuffer segment = segments[(int) ((record - 1) / SEGMENT_SIZE)];
+			if (segment.get((int) (record - 1 - (record - 1) / SEGMENT_SIZE * SEGMENT_SIZE)) == '\n') {
+				return record;
+			}
+			record++;
+		}
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		close(true);
+	}
+
+	private void close(boolean unmap) throws IOException {
+		if (unmap) {
+			for (MappedByteBuffer segment : segments) {
+				if (segment != null) {
+					MappedBuffers.unmap(segment);
+				}
+			}
+		}
+		channel.close();
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import com.google.protobuf.Timestamp;
+import com.google.pubsub.v1.PubsubMessageOrBuilder;
+
+/**
+ * Names of the attributes the samplers add to published messages for measurement.
+ */
+public final class MessageAttributes {
+
+	public static final String SEND_TIMESTAMP = "jmeter_send_ts_us";
+	public static final String SEQUENCE = "jmeter_seq";
+	public static final String PUBLISHER_ID = "jmeter_pub_id";
+	public static final String CODEC = "jmeter_codec";
+	public static final String KEY_SEQUENCE = "jmeter_key_seq";
+
+	private MessageAttributes() {
+	}
+
+	// Returns the attribute parsed as long, or -1 when it is missing or malformed
+	public static long getLong(PubsubMessageOrBuilder message, String name) {
+		return parseLong(message.getAttributesOrDefault(name, null));
+	}
+
+	// Returns the value parsed as long, or -1 when it is null or malformed
+	public static long parseLong(String value) {
+		if (value == null) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	public static long toEpochMicros(Timestamp timestamp) {
+		return timestamp.getSeconds() * 1_000_000L + timestamp.getNanos() / 1000;
+	}
+
+}
@@ -18,35 +18,50 @@
 
 package com.di.jmeter.pubsub.utils;
 
+import java.util.Collection;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
 
-import com.google.pubsub.v1.PubsubMessage;
 
-
-public class MessagesQueue {
-	
+/**
+ * Queue between the message receiver and the subscriber samplers. The receiver
+ * offers, samplers take, poll or drain. Implementations decide where messages
+ * are held: one buffer ({@link BufferedMessagesQueue}), a buffer spilling to
+ * disk ({@link SpillingMessagesQueue}) or stripes ({@link StripedMessagesQueue}).
+ */
+public abstract class MessagesQueue {
 	
-	private final BlockingQueue<PubsubMessage> messages;
+    public static final String IMPLEMENTATION_LINKED = "linkedDeque";
+    public static final String IMPLEMENTATION_RING = "ringBuffer";
 
-    public MessagesQueue(int maxQueueSize){
-        this.messages = new LinkedBlockingDeque<>(maxQueueSize);
+    // ringBuffer uses the lock-free MpmcRingBuffer with the given wait strategy, anything else the linked deque
+    public static MessagesQueue create(String implementation, int maxQueueSize, String waitStrategy) {
+        return new BufferedMessagesQueue(newBuffer(implementation, maxQueueSize, waitStrategy));
     }
 
-    protected MessagesQueue(BlockingQueue<PubsubMessage> messages){
-        this.messages = messages;
+    protected static BlockingQueue<ReceivedMessage> newBuffer(String implementation, int maxQueueSize, String waitStrategy) {
+        if (IMPLEMENTATION_RING.equals(implementation)) {
+            return new MpmcRingBuffer<ReceivedMessage>(maxQueueSize, waitStrategy);
+        }
+        return new LinkedBlockingDeque<>(maxQueueSize);
     }
 
-    public PubsubMessage take() throws InterruptedException {
-        return messages.take();
-    }
+    public abstract ReceivedMessage take() throws InterruptedException;
     
-    public int getSize(){
-        return messages.size();
-    }
+    // Returns null when no message arrived within the timeout
+    public abstract ReceivedMessage poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    // Moves up to maxMessages already queued messages into target without waiting
+    public abstract int drainTo(Collection<? super ReceivedMessage> target, int maxMessages);
+
+    public abstract int getSize();
+
+    // Returns false when the message was not accepted, the receiver nacks it then
+    public abstract boolean offer(ReceivedMessage message);
 
-    public boolean offer(PubsubMessage message){
-        return messages.offer(message);
+    // Releases resources held outside the heap, messages still queued are dropped
+    public void close() {
     }
     
 
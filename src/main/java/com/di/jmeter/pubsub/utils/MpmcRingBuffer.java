@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue (Vyukov's array queue).
+ * Every slot carries a sequence number telling producers and consumers whose
+ * turn it is, so offer and poll are one CAS on the tail or head and never
+ * allocate. Blocking calls wait with the configured strategy instead of a
+ * condition, there is no signalling between producers and consumers. The
+ * capacity is rounded up to a power of two. Iteration works on a weakly
+ * consistent snapshot; a removed element leaves a tombstone in its slot that
+ * consumers skip, so it still counts in size() until the head passes it.
+ */
+public class MpmcRingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+	public static final String WAIT_SPIN = "spin";
+	public static final String WAIT_YIELD = "yield";
+	public static final String WAIT_PARK = "park";
+
+	private static final int SPINS_BEFORE_PARK = 100;
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final Object REMOVED = new Object();
+
+	private final int mask;
+	private final AtomicReferenceArray<Object> buffer;
+	private final AtomicLongArray sequences;
+	private final PaddedAtomicLong head = new PaddedAtomicLong();
+	private final PaddedAtomicLong tail = new PaddedAtomicLong();
+	private final String waitStrategy;
+
+	public MpmcRingBuffer(int capacity, String waitStrategy) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		int size = capacity == 1 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+		this.mask = size - 1;
+		this.buffer = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		this.waitStrategy = waitStrategy == null || waitStrategy.isEmpty() ? WAIT_PARK : waitStrategy;
+	}
+
+	@Override
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		long pos = tail.get();
+		while (true) {
+			int index = (int) (pos & mask);
+			long dif = sequences.get(index) - pos;
+			if (dif == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					buffer.lazySet(index, e);
+					sequences.lazySet(index, pos + 1);
+					return true;
+				}
+				pos = tail.get();
+			} else if (dif < 0) {
+				return false;
+			} else {
+				pos = tail.get();
+			}
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		long pos = head.get();
+		while (true) {
+			int index = (int) (pos & mask);
+			long dif = sequences.get(index) - (pos + 1);
+			if (dif == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					// getAndSet rather than get, so a concurrent remove either wins the slot or sees it emptied
+					Object e = buffer.getAndSet(index, null);
+					sequences.lazySet(index, pos + mask + 1);
+					if (e != REMOVED) {
+						return (E) e;
+					}
+				}
+				pos = head.get();
+			} else if (dif < 0) {
+				return null;
+			} else {
+				pos = head.get();
+			}
+		}
+	}
+
+	@Override
+	public E peek() {
+		long pos = head.get();
+		long end = Math.min(tail.get(), pos + mask + 1);
+		for (; pos < end; pos++) {
+			E e = elementAt(pos);
+			if (e != null) {
+				return e;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void put(E e) throws InterruptedException {
+		for (int attempt = 0; !offer(e); attempt++) {
+			idle(attempt, Long.MAX_VALUE);
+		}
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (int attempt = 0; !offer(e); attempt++) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			idle(attempt, remaining);
+		}
+		return true;
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		E e;
+		for (int attempt = 0; (e = poll()) == null; attempt++) {
+			idle(attempt, Long.MAX_VALUE);
+		}
+		return e;
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		E e;
+		for (int attempt = 0; (e = poll()) == null; attempt++) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return null;
+			}
+			idle(attempt, remaining);
+		}
+		return e;
+	}
+
+	// One wait step of the strategy, park backs off exponentially up to a millisecond
+	private void idle(int attempt, long remainingNanos) throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		switch (waitStrategy) {
+		case WAIT_SPIN:
+			break;
+		case WAIT_YIELD:
+			Thread.yield();
+			break;
+		default:
+			if (attempt < SPINS_BEFORE_PARK) {
+				Thread.yield();
+			} else {
+				int shift = Math.min(attempt - SPINS_BEFORE_PARK, 20);
+				LockSupport.parkNanos(Math.min(Math.min(1000L << shift, MAX_PARK_NANOS), remainingNanos));
+			}
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if (c == this) {
+			throw new IllegalArgumentException();
+		}
+		int drained = 0;
+		E e;
+		while (drained < maxElements && (e = poll()) != null) {
+			c.add(e);
+			drained++;
+		}
+		return drained;
+	}
+
+	@Override
+	public int size() {
+		// Re-read head until it is stable around the tail read, so the result is a consistent snapshot
+		while (true) {
+			long before = head.get();
+			long currentTail = tail.get();
+			long after = head.get();
+			if (before == after) {
+				return (int) Math.max(0, Math.min(currentTail - after, (long) mask + 1));
+			}
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return mask + 1 - size();
+	}
+
+	public int capacity() {
+		return mask + 1;
+	}
+
+	// Weakly consistent: the elements between head and tail when called, without those consumed meanwhile
+	@Override
+	public Iterator<E> iterator() {
+		final List<Long> positions = new ArrayList<>();
+		final List<E> elements = new ArrayList<>();
+		long pos = head.get();
+		long end = Math.min(tail.get(), pos + mask + 1);
+		for (; pos < end; pos++) {
+			E e = elementAt(pos);
+			if (e != null) {
+				positions.add(pos);
+				elements.add(e);
+			}
+		}
+		return new Iterator<E>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < elements.size();
+			}
+
+			@Override
+			public E next() {
+				if (next >= elements.size()) {
+					throw new NoSuchElementException();
+				}
+				return elements.get(next++);
+			}
+
+			@Override
+			public void remove() {
+				if (next == 0) {
+					throw new IllegalStateException();
+				}
+				removeAt(positions.get(next - 1), elements.get(next - 1));
+			}
+		};
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (o == null) {
+			return false;
+		}
+		long pos = head.get();
+		long end = Math.min(tail.get(), pos + mask + 1);
+		for (; pos < end; pos++) {
+			E e = elementAt(pos);
+			if (e != null && o.equals(e) && removeAt(pos, e)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Element stored for pos, or null if it is not published yet, consumed or removed
+	@SuppressWarnings("unchecked")
+	private E elementAt(long pos) {
+		int index = (int) (pos & mask);
+		if (sequences.get(index) != pos + 1) {
+			return null;
+		}
+		Object e = buffer.get(index);
+		// The slot may have been consumed and refilled between the two reads
+		if (e == null || e == REMOVED || sequences.get(index) != pos + 1) {
+			return null;
+		}
+		return (E) e;
+	}
+
+	// Replaces the element by a tombstone unless a consumer took it first
+	private boolean removeAt(long pos, E e) {
+		int index = (int) (pos & mask);
+		return sequences.get(index) == pos + 1 && buffer.compareAndSet(index, e, REMOVED);
+	}
+
+	// Keeps head and tail on separate cache lines
+	@SuppressWarnings("unused")
+	private static final class PaddedAtomicLong extends AtomicLong {
+		private static final long serialVersionUID = 1L;
+		private long p1, p2, p3, p4, p5, p6, p7;
+	}
+
+}
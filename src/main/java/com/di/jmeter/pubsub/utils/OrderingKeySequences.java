@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+/**
+ * Per ordering key sequence numbers shared by all sampler threads of a
+ * connection. The sequence is taken and the message handed to the client under
+ * the key's lock, so the client sees the messages of a key in sequence order.
+ */
+public final class OrderingKeySequences {
+
+	private static final Map<String, long[]> SEQUENCES = new ConcurrentHashMap<>();
+
+	private OrderingKeySequences() {
+	}
+
+	// Runs publish with the next sequence of the key while holding the key's lock
+	public static <T> T inOrder(String connection, String key, LongFunction<T> publish) {
+		long[] next = SEQUENCES.computeIfAbsent(connection + '\0' + key, k -> new long[1]);
+		synchronized (next) {
+			return publish.apply(next[0]++);
+		}
+	}
+
+	public static void clear() {
+		SEQUENCES.clear();
+	}
+
+}
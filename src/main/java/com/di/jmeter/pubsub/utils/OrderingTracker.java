@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Verifies the delivery order of messages with an ordering key, using the
+ * per-key sequence the publisher sampler stamps in
+ * {@link MessageAttributes#KEY_SEQUENCE}. Per key the highest sequence, a
+ * message count and the ranges skipped so far are kept, so a late arrival fills
+ * its range instead of opening a new gap, and a sequence delivered again is
+ * counted as a duplicate rather than out of order.
+ */
+public class OrderingTracker {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OrderingTracker.class);
+
+	private final Map<String, KeyState> keys = new ConcurrentHashMap<>();
+	private final LongAdder inOrder = new LongAdder();
+	private final LongAdder outOfOrder = new LongAdder();
+	private final LongAdder duplicates = new LongAdder();
+	private final LongAdder gaps = new LongAdder();
+	private final LongAdder skipped = new LongAdder();
+
+	// Messages without ordering key or key sequence are ignored
+	public void record(PubsubMessage message) {
+		String key = message.getOrderingKey();
+		if (key.isEmpty()) {
+			return;
+		}
+		long sequence = MessageAttributes.getLong(message, MessageAttributes.KEY_SEQUENCE);
+		if (sequence < 0) {
+			return;
+		}
+		KeyState state = keys.computeIfAbsent(key, k -> new KeyState());
+		synchronized (state) {
+			state.count++;
+			if (state.last < 0 || sequence == state.last + 1) {
+				inOrder.increment();
+			} else if (sequence > state.last + 1) {
+				// Either lost or still to come out of order, later deliveries tell which
+				gaps.increment();
+				skipped.add(sequence - state.last - 1);
+				state.missing.put(state.last + 1, sequence - 1);
+			} else if (state.fill(sequence)) {
+				outOfOrder.increment();
+				skipped.decrement();
+				if (LOGGER.isDebugEnabled()) {
+					LOGGER.debug(String.format("Ordering key %s: sequence %d delivered after %d", key, sequence,
+							state.last));
+				}
+			} else {
+				// Pub/Sub redelivers the rest of a key's stream after a nack or an expired ack deadline
+				duplicates.increment();
+			}
+			state.last = Math.max(state.last, sequence);
+		}
+	}
+
+	public long getOutOfOrder() {
+		return outOfOrder.sum();
+	}
+
+	public long getDuplicates() {
+		return duplicates.sum();
+	}
+
+	public String summary() {
+		long min = Long.MAX_VALUE;
+		long max = 0;
+		long total = 0;
+		for (KeyState state : keys.values()) {
+			synchronized (state) {
+				min = Math.min(min, state.count);
+				max = Math.max(max, state.count);
+				total += state.count;
+			}
+		}
+		return String.format(
+				"keys=%d messages=%d inOrder=%d outOfOrder=%d duplicates=%d gaps=%d skippedSequences=%d messagesPerKey=%d..%d",
+				keys.size(), total, inOrder.sum(), outOfOrder.sum(), duplicates.sum(), gaps.sum(), skipped.sum(),
+				keys.isEmpty() ? 0 : min, max);
+	}
+
+	private static final class KeyState {
+		private long last = -1;
+		private long count;
+		// Skipped sequences not delivered yet, as ranges from first to last inclusive
+		private final TreeMap<Long, Long> missing = new TreeMap<>();
+
+		// Removes the sequence from the skipped ranges, returns false for a redelivery of a sequence already seen
+		private boolean fill(long sequence) {
+			Map.Entry<Long, Long> range = missing.floorEntry(sequence);
+			if (range == null || range.getValue() < sequence) {
+				return false;
+			}
+			long first = range.getKey();
+			long last = range.getValue();
+			missing.remove(first);
+			if (first < sequence) {
+				missing.put(first, sequence - 1);
+			}
+			if (sequence < last) {
+				missing.put(sequence + 1, last);
+			}
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+/**
+ * Bounded LRU cache of encoded payloads keyed by the rendered message text and
+ * the codec applied to it. Not thread-safe: each sampler thread owns one.
+ */
+public class PayloadCache {
+
+	private final int capacity;
+	private final Map<Key, EncodedPayload> entries;
+
+	public PayloadCache(final int capacity) {
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<Key, EncodedPayload>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, EncodedPayload> eldest) {
+				return size() > PayloadCache.this.capacity;
+			}
+		};
+	}
+
+	// Returns the cached payload or null, a cache of capacity 0 never holds anything
+	public EncodedPayload get(String text, String codec) {
+		return capacity > 0 ? entries.get(new Key(text, codec)) : null;
+	}
+
+	public void put(String text, String codec, EncodedPayload payload) {
+		if (capacity > 0) {
+			entries.put(new Key(text, codec), payload);
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private static final class Key {
+		private final String text;
+		private final String codec;
+
+		Key(String text, String codec) {
+			this.text = text;
+			this.codec = codec;
+		}
+
+		@Override
+		public int hashCode() {
+			return text.hashCode() * 31 + codec.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return codec.equals(other.codec) && text.equals(other.text);
+		}
+	}
+
+}
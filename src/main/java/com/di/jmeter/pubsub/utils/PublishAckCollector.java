@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jmeter.samplers.SampleResult;
+
+import com.google.api.core.ApiFutureCallback;
+
+/**
+ * Collects publish acknowledgements completed on the client callback threads
+ * and turns them into one aggregate {@link SampleResult} per report interval.
+ */
+public class PublishAckCollector {
+
+	private static final long DRAIN_POLL_MS = 10;
+	private final LongAdder acked = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder ackNanos = new LongAdder();
+	private final LongAdder sentBytes = new LongAdder();
+	private final LongAdder handedOver = new LongAdder();
+	private final LongAdder blockedNanos = new LongAdder();
+	private final AtomicLong maxAckNanos = new AtomicLong();
+	private final AtomicLong intervalStart = new AtomicLong(System.currentTimeMillis());
+	private final AtomicLong inFlight = new AtomicLong();
+	private final AtomicBoolean drained = new AtomicBoolean();
+	private final long reportIntervalMs;
+	private final LatencyRecorder recorder;
+	private volatile String lastError;
+
+	// recorder may be null when no ack latency histogram is kept
+	public PublishAckCollector(long reportIntervalMs, LatencyRecorder recorder) {
+		this.reportIntervalMs = Math.max(1, reportIntervalMs);
+		this.recorder = recorder;
+	}
+
+	// Returns a callback recording the outcome of one message handed over at startNanos
+	public ApiFutureCallback<String> callback(final long startNanos, final int bytes) {
+		inFlight.incrementAndGet();
+		return new ApiFutureCallback<String>() {
+			@Override
+			public void onSuccess(String messageId) {
+				onAck(System.nanoTime() - startNanos, bytes);
+				inFlight.decrementAndGet();
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				onError(t);
+				inFlight.decrementAndGet();
+			}
+		};
+	}
+
+	public void onAck(long latencyNanos, int bytes) {
+		acked.increment();
+		ackNanos.add(latencyNanos);
+		sentBytes.add(bytes);
+		maxAckNanos.accumulateAndGet(latencyNanos, Math::max);
+		if (recorder != null) {
+			recorder.recordNanos(latencyNanos);
+		}
+	}
+
+	// Time the publish() call took to hand the message over, including time blocked by flow control
+	public void onHandOver(long nanos) {
+		handedOver.increment();
+		blockedNanos.add(nanos);
+	}
+
+	public void onError(Throwable t) {
+		failed.increment();
+		lastError = t.toString();
+	}
+
+	// Returns the aggregate for the elapsed interval, or null if the interval is still running or was idle
+	public SampleResult poll(String label) {
+		return poll(label, false);
+	}
+
+	// Blocks the caller until the running interval is over, then returns its aggregate
+	public SampleResult await(String label) throws InterruptedException {
+		SampleResult result;
+		while ((result = poll(label, true)) == null) {
+			long remaining = reportIntervalMs - (System.currentTimeMillis() - intervalStart.get());
+			TimeUnit.MILLISECONDS.sleep(Math.max(1, remaining));
+		}
+		return result;
+	}
+
+	// Waits up to timeoutMs for the acks still in flight and returns the aggregate since the last report, acks still
+	// missing then count as failed. Only the first call drains, later ones and an empty final interval return null
+	public SampleResult drain(String label, long timeoutMs) throws InterruptedException {
+		if (!drained.compareAndSet(false, true)) {
+			return null;
+		}
+		long deadline = System.currentTimeMillis() + timeoutMs;
+		while (inFlight.get() > 0 && System.currentTimeMillis() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(DRAIN_POLL_MS);
+		}
+		long pending = inFlight.get();
+		if (pending > 0) {
+			failed.add(pending);
+			lastError = String.format("%d acks still pending after %d ms", pending, timeoutMs);
+		}
+		long start;
+		long now;
+		do {
+			start = intervalStart.get();
+			now = System.currentTimeMillis();
+		} while (!intervalStart.compareAndSet(start, now));
+		long ok = acked.sumThenReset();
+		long errors = failed.sumThenReset();
+		if (ok + errors == 0 && handedOver.sum() == 0) {
+			return null;
+		}
+		return snapshot(label, start, now, ok, errors);
+	}
+
+	private SampleResult poll(String label, boolean emitIdle) {
+		long start = intervalStart.get();
+		long now = System.currentTimeMillis();
+		if (now - start < reportIntervalMs || !intervalStart.compareAndSet(start, now)) {
+			return null;
+		}
+		long ok = acked.sumThenReset();
+		long errors = failed.sumThenReset();
+		if (ok + errors == 0 && !emitIdle) {
+			return null;
+		}
+		return snapshot(label, start, now, ok, errors);
+	}
+
+	private SampleResult snapshot(String label, long start, long end, long ok, long errors) {
+		long totalNanos = ackNanos.sumThenReset();
+		long bytes = sentBytes.sumThenReset();
+		long maxNanos = maxAckNanos.getAndSet(0);
+		long meanMs = ok > 0 ? TimeUnit.NANOSECONDS.toMillis(totalNanos / ok) : 0;
+		long handOvers = handedOver.sumThenReset();
+		long blocked = blockedNanos.sumThenReset();
+		long meanBlockedMicros = handOvers > 0 ? TimeUnit.NANOSECONDS.toMicros(blocked / handOvers) : 0;
+
+		SampleResult result = new SampleResult(start, end - start);
+		result.setSampleLabel(label);
+		result.setDataType(SampleResult.TEXT);
+		result.setContentType("text/plain");
+		result.setDataEncoding(StandardCharsets.UTF_8.name());
+		result.setSampleCount((int) Math.min(Integer.MAX_VALUE, Math.max(1, ok + errors)));
+		result.setErrorCount((int) Math.min(Integer.MAX_VALUE, errors));
+		result.setSentBytes(bytes);
+		result.setLatency(meanMs);
+		result.setSuccessful(errors == 0);
+		result.setResponseCode(errors == 0 ? "200" : "500");
+		result.setResponseMessage(errors == 0 ? "OK" : lastError);
+		result.setResponseData(String.format("acked: %d%nfailed: %d%nmeanAckMs: %d%nmaxAckMs: %d%nhandedOver: %d%nmeanBlockedMicros: %d%n",
+				ok, errors, meanMs, TimeUnit.NANOSECONDS.toMillis(maxNanos), handOvers, meanBlockedMicros),
+				StandardCharsets.UTF_8.name());
+		return result;
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.cloud.pubsub.v1.Publisher;
+
+/**
+ * Set of publisher clients for one connection, so that publish throughput is
+ * not bound by the batching lock and channel of a single client. Pools are
+ * registered process-wide under the connection name.
+ */
+public class PublisherPool {
+
+	public static final String TOPOLOGY_SHARED = "shared";
+	public static final String TOPOLOGY_PER_THREAD = "perThread";
+	public static final String TOPOLOGY_SHARDED = "sharded";
+	public static final String SELECTION_ROUND_ROBIN = "roundRobin";
+	public static final String SELECTION_KEY_HASH = "keyHash";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PublisherPool.class);
+	private static final Map<String, PublisherPool> POOLS = new ConcurrentHashMap<>();
+	// Pools whose clients did not terminate in time and may still hold unsent messages
+	private static final AtomicInteger UNTERMINATED = new AtomicInteger();
+
+	private final String name;
+	private final String topology;
+	private final boolean keyHash;
+	private final PublisherFactory factory;
+	private final Publisher[] shards;
+	private final Map<Long, Publisher> perThread = new ConcurrentHashMap<>();
+	private final Map<String, Publisher> orderingKeyClients = new ConcurrentHashMap<>();
+	private final AtomicInteger next = new AtomicInteger();
+
+	private PublisherPool(String name, String topology, int size, boolean keyHash, PublisherFactory factory)
+			throws IOException {
+		this.name = name;
+		this.topology = topology;
+		this.keyHash = keyHash;
+		this.factory = factory;
+		this.shards = new Publisher[TOPOLOGY_SHARDED.equals(topology) ? size : 1];
+		for (int i = 0; i < shards.length; i++) {
+			shards[i] = factory.create();
+		}
+	}
+
+	// Creates the pool and registers it under name, size is only used by the sharded topology
+	public static PublisherPool create(String name, String topology, int size, String selection,
+			PublisherFactory factory) throws IOException {
+		if (TOPOLOGY_SHARDED.equals(topology) && size < 1) {
+			throw new IllegalArgumentException("Number of publisher clients must be at least 1");
+		}
+		PublisherPool pool = new PublisherPool(name, topology, size, SELECTION_KEY_HASH.equals(selection), factory);
+		POOLS.put(name, pool);
+		return pool;
+	}
+
+	// Returns the pool registered under name, or null
+	public static PublisherPool get(String name) {
+		return POOLS.get(name);
+	}
+
+	// First client of the pool, kept in the thread variables for scripts that look it up there
+	public Publisher getDefault() {
+		return shards[0];
+	}
+
+	// Returns the client for the calling thread, key picks the shard in keyHash selection
+	public Publisher acquire(String key) {
+		if (TOPOLOGY_PER_THREAD.equals(topology)) {
+			return perThread.computeIfAbsent(Thread.currentThread().getId(), id -> {
+				try {
+					return factory.create();
+				} catch (IOException e) {
+					throw new UncheckedIOException("Unable to create publisher client for " + name, e);
+				}
+			});
+		}
+		if (shards.length == 1) {
+			return shards[0];
+		}
+		if (keyHash && key != null) {
+			return shards[Math.floorMod(key.hashCode(), shards.length)];
+		}
+		return shards[Math.floorMod(next.getAndIncrement(), shards.length)];
+	}
+
+	// An ordering key always goes through one client, whatever the topology and selection, so Pub/Sub can keep its order.
+	// Keys hash onto a shard, per-thread clients are not a fixed set so a key stays with the client of the first thread using it
+	public Publisher acquireForOrderingKey(String orderingKey) {
+		if (TOPOLOGY_PER_THREAD.equals(topology)) {
+			return orderingKeyClients.computeIfAbsent(orderingKey, this::acquire);
+		}
+		return shards[Math.floorMod(orderingKey.hashCode(), shards.length)];
+	}
+
+	// True once no pool is registered and every client terminated, so nothing references published payloads anymore
+	public static boolean isIdle() {
+		return POOLS.isEmpty() && UNTERMINATED.get() == 0;
+	}
+
+	// Shuts down every client of the pool and removes it from the registry, returns false if a client did not terminate in time
+	public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+		List<Publisher> clients = new ArrayList<>(perThread.values());
+		for (Publisher shard : shards) {
+			clients.add(shard);
+		}
+		boolean terminated = true;
+		try {
+			for (Publisher client : clients) {
+				client.shutdown();
+			}
+			for (Publisher client : clients) {
+				terminated &= client.awaitTermination(timeout, unit);
+			}
+		} catch (InterruptedException e) {
+			terminated = false;
+			throw e;
+		} finally {
+			if (!terminated) {
+				UNTERMINATED.incrementAndGet();
+			}
+			POOLS.remove(name, this);
+		}
+		LOGGER.info(String.format("Shut down %d publisher clients of %s", clients.size(), name));
+		return terminated;
+	}
+
+	/**
+	 * Builds one configured publisher client.
+	 */
+	public interface PublisherFactory {
+		Publisher create() throws IOException;
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Target publish rate over time: either constant, or a sequence of segments
+ * read from a file with one {@code <seconds>,<rate>} (step) or
+ * {@code <seconds>,<fromRate>,<toRate>} (linear ramp) line per segment. A
+ * spike is a short step.
+ */
+public class RateProfile {
+
+	private final long[] ends;
+	private final double[] fromRates;
+	private final double[] toRates;
+
+	private RateProfile(long[] ends, double[] fromRates, double[] toRates) {
+		this.ends = ends;
+		this.fromRates = fromRates;
+		this.toRates = toRates;
+	}
+
+	public static RateProfile constant(double rate) {
+		if (rate <= 0) {
+			throw new IllegalArgumentException("Target rate must be positive");
+		}
+		return new RateProfile(new long[] { Long.MAX_VALUE }, new double[] { rate }, new double[] { rate });
+	}
+
+	public static RateProfile load(String file) throws IOException {
+		List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+		List<double[]> segments = new ArrayList<>();
+		for (String line : lines) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] values = line.split(",");
+			try {
+				double seconds = Double.parseDouble(values[0].trim());
+				double from = Double.parseDouble(values[1].trim());
+				double to = values.length > 2 ? Double.parseDouble(values[2].trim()) : from;
+				if (seconds <= 0 || from < 0 || to < 0) {
+					throw new IllegalArgumentException("Invalid rate profile line: " + line);
+				}
+				segments.add(new double[] { seconds, from, to });
+			} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+				throw new IllegalArgumentException("Invalid rate profile line: " + line, e);
+			}
+		}
+		if (segments.isEmpty()) {
+			throw new IllegalArgumentException("Rate profile " + file + " has no segments");
+		}
+		long[] ends = new long[segments.size()];
+		double[] fromRates = new double[segments.size()];
+		double[] toRates = new double[segments.size()];
+		long end = 0;
+		for (int i = 0; i < segments.size(); i++) {
+			end += (long) (segments.get(i)[0] * TimeUnit.SECONDS.toNanos(1));
+			ends[i] = end;
+			fromRates[i] = segments.get(i)[1];
+			toRates[i] = segments.get(i)[2];
+		}
+		return new RateProfile(ends, fromRates, toRates);
+	}
+
+	// Returns the target rate in messages per second at elapsed nanos from the start, or -1 after the last segment
+	public double rateAt(long elapsedNanos) {
+		long start = 0;
+		for (int i = 0; i < ends.length; i++) {
+			if (elapsedNanos < ends[i]) {
+				if (fromRates[i] == toRates[i]) {
+					return fromRates[i];
+				}
+				double progress = (double) (elapsedNanos - start) / (ends[i] - start);
+				return fromRates[i] + (toRates[i] - fromRates[i]) * progress;
+			}
+			start = ends[i];
+		}
+		return -1;
+	}
+
+	// Returns the elapsed nanos at which the integral of the rate since fromNanos reaches one message, or -1 when
+	// the profile ends before. Integrating across segments keeps a ramp from 0 or a spike after a low step on schedule
+	public long nextSendAfter(long fromNanos) {
+		double need = 1;
+		long position = fromNanos;
+		long start = 0;
+		for (int i = 0; i < ends.length; i++) {
+			if (position >= ends[i]) {
+				start = ends[i];
+				continue;
+			}
+			double seconds = (ends[i] - start) / 1e9;
+			double slope = (toRates[i] - fromRates[i]) / seconds;
+			double rate = fromRates[i] + slope * ((position - start) / 1e9);
+			double remaining = (ends[i] - position) / 1e9;
+			double area = (rate + rate + slope * remaining) / 2 * remaining;
+			if (area >= need) {
+				// Solves rate * d + slope / 2 * d^2 = need in the form that stays exact for a slope near 0
+				double root = Math.sqrt(Math.max(0, rate * rate + 2 * slope * need));
+				double delay = 2 * need / (rate + root);
+				return Math.min(ends[i], position + Math.max(1, (long) Math.ceil(delay * 1e9)));
+			}
+			need -= area;
+			position = ends[i];
+			start = ends[i];
+		}
+		return -1;
+	}
+
+	// Elapsed nanos at the end of the last segment, Long.MAX_VALUE for a constant rate
+	public long getDuration() {
+		return ends[ends.length - 1];
+	}
+
+	public String describe() {
+		if (ends.length == 1 && ends[0] == Long.MAX_VALUE) {
+			return String.format("constant %.1f msg/s", fromRates[0]);
+		}
+		return String.format("%d segments over %.1f s", ends.length, ends[ends.length - 1] / 1e9);
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Open-model publisher: one thread hands messages to the client pool on a
+ * fixed schedule derived from a {@link RateProfile}, whatever the number of
+ * JMeter threads and however slow the acks are. Ack latency is measured from
+ * the intended send time, so a stalled client or broker shows up as latency
+ * instead of as a lower offered load (coordinated omission).
+ */
+public class RatePublishEngine {
+
+	public static final String MODE_OFF = "off";
+	public static final String MODE_CONSTANT = "constant";
+	public static final String MODE_PROFILE = "profile";
+	public static final String SCHEDULE_LAG_SUFFIX = ".schedule-lag";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RatePublishEngine.class);
+	private static final Map<String, RatePublishEngine> ENGINES = new ConcurrentHashMap<>();
+	private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final String name;
+	private final PublisherPool pool;
+	private final RateProfile profile;
+	private final PublishAckCollector collector;
+	private final LatencyRecorder scheduleLag;
+	private final AtomicBoolean started = new AtomicBoolean();
+	private volatile boolean running = true;
+	private volatile boolean finished = false;
+	private Thread thread;
+	private long sent;
+
+	private RatePublishEngine(String name, PublisherPool pool, RateProfile profile, PublishAckCollector collector,
+			LatencyRecorder scheduleLag) {
+		this.name = name;
+		this.pool = pool;
+		this.profile = profile;
+		this.collector = collector;
+		this.scheduleLag = scheduleLag;
+	}
+
+	// Registers an engine for the connection, it starts publishing once a sampler supplies the messages
+	public static RatePublishEngine create(String name, PublisherPool pool, RateProfile profile,
+			PublishAckCollector collector, LatencyRecorder scheduleLag) {
+		RatePublishEngine engine = new RatePublishEngine(name, pool, profile, collector, scheduleLag);
+		ENGINES.put(name, engine);
+		return engine;
+	}
+
+	public static RatePublishEngine get(String name) {
+		return ENGINES.get(name);
+	}
+
+	// Starts the schedule with messages from source, returns false when another sampler started it already
+	public boolean start(MessageSource source) {
+		if (!started.compareAndSet(false, true)) {
+			return false;
+		}
+		thread = new Thread(() -> run(source), name + "-rate-engine");
+		thread.setDaemon(true);
+		thread.start();
+		LOGGER.info(String.format("Rate engine %s started: %s", name, profile.describe()));
+		return true;
+	}
+
+	public PublishAckCollector getCollector() {
+		return collector;
+	}
+
+	// True once the profile or the message source is exhausted, or the engine was stopped
+	public boolean isFinished() {
+		return finished;
+	}
+
+	public void stop() throws InterruptedException {
+		ENGINES.remove(name, this);
+		running = false;
+		if (thread != null) {
+			thread.interrupt();
+			thread.join(TimeUnit.SECONDS.toMillis(10));
+		}
+		LOGGER.info(String.format("Rate engine %s stopped after %d messages", name, sent));
+	}
+
+	// The first message goes out at the start unless the profile starts idle, every following one once the
+	// profile's rate integrated over the time since the previous send reaches one message
+	private void run(MessageSource source) {
+		final long start = System.nanoTime();
+		try {
+			long elapsed = profile.rateAt(0) > 0 ? 0 : profile.nextSendAfter(0);
+			while (running) {
+				if (elapsed < 0) {
+					// Idle until the profile ends, so observing threads run as long as it lasts
+					waitUntil(start + profile.getDuration());
+					LOGGER.info(String.format("Rate engine %s reached the end of its profile", name));
+					break;
+				}
+				if (!waitUntil(start + elapsed)) {
+					break;
+				}
+				if (!publish(source, start + elapsed)) {
+					LOGGER.info(String.format("Rate engine %s: message source exhausted", name));
+					break;
+				}
+				elapsed = profile.nextSendAfter(elapsed);
+			}
+		} finally {
+			finished = true;
+		}
+	}
+
+	// Parks until the intended time, spinning for the last stretch as park is too coarse for high rates
+	private boolean waitUntil(long deadline) {
+		long remaining;
+		while ((remaining = deadline - System.nanoTime()) > 0) {
+			if (!running) {
+				return false;
+			}
+			if (remaining > SPIN_THRESHOLD_NANOS) {
+				LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+			} else {
+				Thread.yield();
+			}
+		}
+		return running;
+	}
+
+	// Messages that fell behind schedule are sent at once, their latency still counts from the intended time
+	private boolean publish(MessageSource source, long intendedNanos) {
+		PubsubMessage message = null;
+		try {
+			message = source.next(intendedNanos);
+			if (message == null) {
+				return false;
+			}
+			long handOverNanos = System.nanoTime();
+			scheduleLag.recordNanos(handOverNanos - intendedNanos);
+			ApiFuture<String> future = pool.acquire(null).publish(message);
+			collector.onHandOver(System.nanoTime() - handOverNanos);
+			ApiFutures.addCallback(future, collector.callback(intendedNanos, message.getSerializedSize()),
+					MoreExecutors.directExecutor());
+			SequenceTracker.trackPublish(future, message);
+			sent++;
+		} catch (RuntimeException e) {
+			if (message != null) {
+				SequenceTracker.recordPublishFailure(message);
+			}
+			collector.onError(e);
+		}
+		return true;
+	}
+
+	/**
+	 * Supplies the message for a send slot, called on the engine thread only.
+	 */
+	public interface MessageSource {
+		// Returns null when there are no more messages
+		PubsubMessage next(long intendedNanos);
+	}
+
+}
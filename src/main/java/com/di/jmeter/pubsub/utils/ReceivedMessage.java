@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * A message handed over by the receiver together with the time it arrived in this JVM
+ * and, when the ack is deferred to the sampler, the consumer to reply with.
+ * In metadata-only form the payload is dropped on arrival and only the id, publish
+ * time, size and a few selected attributes (as key/value pairs) are kept.
+ */
+public class ReceivedMessage {
+
+	private static final String[] NO_ATTRIBUTES = new String[0];
+
+	private final PubsubMessage message;
+	private final String messageId;
+	private final long publishEpochMicros;
+	private final int size;
+	private final String[] attributes;
+	private final long receiveEpochMicros;
+	private final long receiveNanos;
+	private final AckReplyConsumer consumer;
+
+	public ReceivedMessage(PubsubMessage message) {
+		this(message, null);
+	}
+
+	// consumer is null when the receiver has already acked the message
+	public ReceivedMessage(PubsubMessage message, AckReplyConsumer consumer) {
+		this(message, consumer, System.nanoTime());
+	}
+
+	private ReceivedMessage(PubsubMessage message, AckReplyConsumer consumer, long receiveNanos) {
+		this(message, consumer, receiveNanos, EpochClock.toEpochMicros(receiveNanos));
+	}
+
+	// Restores a message read back from a spill segment with its original receive times
+	ReceivedMessage(PubsubMessage message, AckReplyConsumer consumer, long receiveNanos, long receiveEpochMicros) {
+		this.message = message;
+		this.messageId = null;
+		this.publishEpochMicros = 0;
+		this.size = 0;
+		this.attributes = null;
+		this.consumer = consumer;
+		this.receiveNanos = receiveNanos;
+		this.receiveEpochMicros = receiveEpochMicros;
+	}
+
+	ReceivedMessage(String messageId, long publishEpochMicros, int size, String[] attributes, AckReplyConsumer consumer,
+			long receiveNanos, long receiveEpochMicros) {
+		this.message = null;
+		this.messageId = messageId;
+		this.publishEpochMicros = publishEpochMicros;
+		this.size = size;
+		this.attributes = attributes;
+		this.consumer = consumer;
+		this.receiveNanos = receiveNanos;
+		this.receiveEpochMicros = receiveEpochMicros;
+	}
+
+	// Keeps only the metadata and the named attributes of message, the payload can be collected right away
+	public static ReceivedMessage metadataOnly(PubsubMessage message, AckReplyConsumer consumer, String[] retainedAttributes) {
+		long receiveNanos = System.nanoTime();
+		String[] kept = NO_ATTRIBUTES;
+		int found = 0;
+		for (String key : retainedAttributes) {
+			if (message.containsAttributes(key)) {
+				found++;
+			}
+		}
+		if (found > 0) {
+			kept = new String[found * 2];
+			int i = 0;
+			for (String key : retainedAttributes) {
+				String value = message.getAttributesOrDefault(key, null);
+				if (value != null) {
+					kept[i++] = key;
+					kept[i++] = value;
+				}
+			}
+		}
+		return new ReceivedMessage(message.getMessageId(),
+				message.hasPublishTime() ? MessageAttributes.toEpochMicros(message.getPublishTime()) : -1,
+				message.getData().size(), kept, consumer, receiveNanos, EpochClock.toEpochMicros(receiveNanos));
+	}
+
+	// The full message, or null in metadata-only form
+	public PubsubMessage getMessage() {
+		return message;
+	}
+
+	public boolean isMetadataOnly() {
+		return message == null;
+	}
+
+	public String getMessageId() {
+		return message != null ? message.getMessageId() : messageId;
+	}
+
+	// Server publish time, or -1 when the message has none
+	public long getPublishEpochMicros() {
+		if (message != null) {
+			return message.hasPublishTime() ? MessageAttributes.toEpochMicros(message.getPublishTime()) : -1;
+		}
+		return publishEpochMicros;
+	}
+
+	// Payload size in bytes
+	public int getSize() {
+		return message != null ? message.getData().size() : size;
+	}
+
+	// In metadata-only form only the retained attributes are available
+	public String getAttribute(String key) {
+		if (message != null) {
+			return message.getAttributesOrDefault(key, null);
+		}
+		for (int i = 0; i < attributes.length; i += 2) {
+			if (attributes[i].equals(key)) {
+				return attributes[i + 1];
+			}
+		}
+		return null;
+	}
+
+	// Retained attributes as alternating keys and values, metadata-only form only
+	String[] getRetainedAttributes() {
+		return attributes;
+	}
+
+	// Rough heap footprint, used for the byte budget of the queue
+	public int getRetainedBytes() {
+		if (message != null) {
+			return message.getSerializedSize();
+		}
+		int bytes = 64 + 2 * messageId.length();
+		for (String attribute : attributes) {
+			bytes += 40 + 2 * attribute.length();
+		}
+		return bytes;
+	}
+
+	public long getReceiveEpochMicros() {
+		return receiveEpochMicros;
+	}
+
+	public long getReceiveNanos() {
+		return receiveNanos;
+	}
+
+	AckReplyConsumer getConsumer() {
+		return consumer;
+	}
+
+	public boolean isAckPending() {
+		return consumer != null;
+	}
+
+	// Acks or nacks the message and returns the time since it was received, or -1 if there was nothing to reply to
+	public long reply(boolean ack) {
+		if (consumer == null) {
+			return -1;
+		}
+		if (ack) {
+			consumer.ack();
+		} else {
+			consumer.nack();
+		}
+		return System.nanoTime() - receiveNanos;
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of the sequence numbers received from one publisher, chunked like a
+ * Roaring bitmap: the high bits select a container of 65536 bits. A container
+ * every sequence of which has arrived is replaced by one shared marker, so a
+ * loss-free stream costs a few containers at its head however long it runs.
+ * Also tracks duplicates and the largest reorder distance. Not thread-safe.
+ */
+public class SequenceBitmap {
+
+	private static final int CONTAINER_BITS = 16;
+	private static final int CONTAINER_SIZE = 1 << CONTAINER_BITS;
+	private static final Container FULL = new Container();
+
+	private final Map<Long, Container> containers = new HashMap<>();
+	private long maxSequence = -1;
+	private long received;
+	private long duplicates;
+	private long maxReorder;
+
+	// Returns false when the sequence was already received
+	public boolean add(long sequence) {
+		if (sequence < 0) {
+			return true;
+		}
+		Long key = sequence >>> CONTAINER_BITS;
+		Container container = containers.get(key);
+		if (container == FULL) {
+			duplicates++;
+			return false;
+		}
+		if (container == null) {
+			container = new Container();
+			containers.put(key, container);
+		}
+		if (!container.set((int) (sequence & (CONTAINER_SIZE - 1)))) {
+			duplicates++;
+			return false;
+		}
+		if (container.cardinality == CONTAINER_SIZE) {
+			containers.put(key, FULL);
+		}
+		received++;
+		if (sequence > maxSequence) {
+			maxSequence = sequence;
+		} else {
+			maxReorder = Math.max(maxReorder, maxSequence - sequence);
+		}
+		return true;
+	}
+
+	public long getReceived() {
+		return received;
+	}
+
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	// Largest distance between the highest sequence seen and a sequence arriving after it
+	public long getMaxReorder() {
+		return maxReorder;
+	}
+
+	public long getMaxSequence() {
+		return maxSequence;
+	}
+
+	// Sequences from 0 to the highest received that have not arrived (yet)
+	public long getMissing() {
+		return maxSequence + 1 - received;
+	}
+
+	public boolean contains(long sequence) {
+		if (sequence < 0) {
+			return false;
+		}
+		Container container = containers.get(sequence >>> CONTAINER_BITS);
+		return container == FULL || (container != null && container.get((int) (sequence & (CONTAINER_SIZE - 1))));
+	}
+
+	// Adds up to limit missing ranges as "from-to" (or "n") and returns the total number of ranges
+	public long missingRanges(List<String> target, int limit) {
+		return ranges(target, limit, false);
+	}
+
+	// Adds up to limit ranges of received sequences as "from-to" (or "n") and returns the total number of ranges
+	public long receivedRanges(List<String> target, int limit) {
+		return ranges(target, limit, true);
+	}
+
+	private long ranges(List<String> target, int limit, boolean present) {
+		long ranges = 0;
+		long rangeStart = -1;
+		long lastKey = maxSequence >>> CONTAINER_BITS;
+		for (long key = 0; maxSequence >= 0 && key <= lastKey; key++) {
+			Container container = containers.get(key);
+			long base = key << CONTAINER_BITS;
+			if (container == FULL || container == null) {
+				boolean match = (container == FULL) == present;
+				if (!match && rangeStart >= 0) {
+					ranges += emit(target, limit, ranges, rangeStart, base - 1);
+					rangeStart = -1;
+				} else if (match && rangeStart < 0) {
+					rangeStart = base;
+				}
+				continue;
+			}
+			int end = (int) Math.min(CONTAINER_SIZE - 1, maxSequence - base);
+			for (int bit = 0; bit <= end; bit++) {
+				boolean match = container.get(bit) == present;
+				if (match && rangeStart < 0) {
+					rangeStart = base + bit;
+				} else if (!match && rangeStart >= 0) {
+					ranges += emit(target, limit, ranges, rangeStart, base + bit - 1);
+					rangeStart = -1;
+				}
+			}
+		}
+		if (rangeStart >= 0) {
+			ranges += emit(target, limit, ranges, rangeStart, maxSequence);
+		}
+		return ranges;
+	}
+
+	// Calls action with every received sequence in ascending order
+	public void forEach(LongConsumer action) {
+		long lastKey = maxSequence >>> CONTAINER_BITS;
+		for (long key = 0; maxSequence >= 0 && key <= lastKey; key++) {
+			Container container = containers.get(key);
+			if (container == null) {
+				continue;
+			}
+			long base = key << CONTAINER_BITS;
+			for (int bit = 0; bit < CONTAINER_SIZE; bit++) {
+				if (container == FULL || container.get(bit)) {
+					action.accept(base + bit);
+				}
+			}
+		}
+	}
+
+	private static int emit(List<String> target, int limit, long ranges, long from, long to) {
+		if (ranges < limit) {
+			target.add(from == to ? Long.toString(from) : from + "-" + to);
+		}
+		return 1;
+	}
+
+	private static final class Container {
+		private long[] words;
+		private int cardinality;
+
+		boolean set(int bit) {
+			if (words == null) {
+				words = new long[CONTAINER_SIZE / 64];
+			}
+			long mask = 1L << bit;
+			int index = bit >>> 6;
+			if ((words[index] & mask) != 0) {
+				return false;
+			}
+			words[index] |= mask;
+			cardinality++;
+			return true;
+		}
+
+		boolean get(int bit) {
+			return words != null && (words[bit >>> 6] & (1L << bit)) != 0;
+		}
+	}
+
+}
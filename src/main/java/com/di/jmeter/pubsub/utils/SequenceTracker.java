@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.PubsubMessageOrBuilder;
+
+/**
+ * Loss, duplicate and reorder detection from the (publisher id, sequence) pair
+ * the publisher sampler stamps in {@link MessageAttributes#PUBLISHER_ID} and
+ * {@link MessageAttributes#SEQUENCE}. One {@link SequenceBitmap} per publisher,
+ * updated under that bitmap's lock by the receiver threads. Sequences whose
+ * publish failed are remembered process-wide, so when publisher and subscriber
+ * run in the same JVM the missing messages are split into never published and
+ * lost.
+ */
+public class SequenceTracker {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SequenceTracker.class);
+	private static final int RANGES_PER_PUBLISHER = 20;
+	private static final ScheduledExecutorService REPORTER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "pubsub-sequence-reporter");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final Map<String, SequenceBitmap> FAILED_PUBLISHES = new ConcurrentHashMap<>();
+
+	private final Map<String, SequenceBitmap> publishers = new ConcurrentHashMap<>();
+	private ScheduledFuture<?> reporting;
+
+	// Logs the summary under name every intervalMs until stopReporting
+	public synchronized void startReporting(final String name, long intervalMs) {
+		long period = Math.max(1000, intervalMs);
+		reporting = REPORTER.scheduleAtFixedRate(() -> LOGGER.info(String.format("Sequences of %s: %s", name, summary())),
+				period, period, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stopReporting() {
+		if (reporting != null) {
+			reporting.cancel(false);
+			reporting = null;
+		}
+	}
+
+	public void record(PubsubMessage message) {
+		String publisherId = message.getAttributesOrDefault(MessageAttributes.PUBLISHER_ID, null);
+		long sequence = MessageAttributes.getLong(message, MessageAttributes.SEQUENCE);
+		if (publisherId == null || sequence < 0) {
+			return;
+		}
+		SequenceBitmap bitmap = publishers.computeIfAbsent(publisherId, id -> new SequenceBitmap());
+		synchronized (bitmap) {
+			bitmap.add(sequence);
+		}
+	}
+
+	// Remembers the sequence of a message whose publish failed, messages without sequence are ignored
+	public static void recordPublishFailure(PubsubMessageOrBuilder message) {
+		recordPublishFailure(message.getAttributesOrDefault(MessageAttributes.PUBLISHER_ID, null),
+				MessageAttributes.getLong(message, MessageAttributes.SEQUENCE));
+	}
+
+	// Remembers the sequence of the message if the publish future fails
+	public static void trackPublish(ApiFuture<String> future, PubsubMessageOrBuilder message) {
+		final String publisherId = message.getAttributesOrDefault(MessageAttributes.PUBLISHER_ID, null);
+		final long sequence = MessageAttributes.getLong(message, MessageAttributes.SEQUENCE);
+		if (publisherId == null || sequence < 0) {
+			return;
+		}
+		ApiFutures.addCallback(future, new ApiFutureCallback<String>() {
+			@Override
+			public void onSuccess(String messageId) {
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				recordPublishFailure(publisherId, sequence);
+			}
+		}, MoreExecutors.directExecutor());
+	}
+
+	private static void recordPublishFailure(String publisherId, long sequence) {
+		if (publisherId == null || sequence < 0) {
+			return;
+		}
+		SequenceBitmap failed = FAILED_PUBLISHES.computeIfAbsent(publisherId, id -> new SequenceBitmap());
+		synchronized (failed) {
+			failed.add(sequence);
+		}
+	}
+
+	// Count and first ranges of the failed publishes of a publisher, or null when none failed
+	public static String describePublishFailures(String publisherId) {
+		SequenceBitmap failed = FAILED_PUBLISHES.get(publisherId);
+		if (failed == null) {
+			return null;
+		}
+		synchronized (failed) {
+			List<String> ranges = new ArrayList<>();
+			long total = failed.receivedRanges(ranges, RANGES_PER_PUBLISHER);
+			return String.format("failed=%d sequences=%s%s", failed.getReceived(), ranges,
+					total > ranges.size() ? " (" + total + " ranges in total)" : "");
+		}
+	}
+
+	// Forgets the failures of the previous test
+	public static void clearPublishFailures() {
+		FAILED_PUBLISHES.clear();
+	}
+
+	// Totals over all publishers. Missing counts messages still in flight while the test runs, neverPublished
+	// the missing ones whose publish failed in this JVM and lost the rest
+	public String summary() {
+		long received = 0;
+		long missing = 0;
+		long neverPublished = 0;
+		long duplicates = 0;
+		long maxReorder = 0;
+		for (Map.Entry<String, SequenceBitmap> entry : publishers.entrySet()) {
+			SequenceBitmap bitmap = entry.getValue();
+			synchronized (bitmap) {
+				received += bitmap.getReceived();
+				missing += bitmap.getMissing();
+				neverPublished += neverPublished(entry.getKey(), bitmap);
+				duplicates += bitmap.getDuplicates();
+				maxReorder = Math.max(maxReorder, bitmap.getMaxReorder());
+			}
+		}
+		return String.format("publishers=%d received=%d missing=%d neverPublished=%d lost=%d duplicates=%d maxReorder=%d",
+				publishers.size(), received, missing, neverPublished, missing - neverPublished, duplicates, maxReorder);
+	}
+
+	// Failed publishes of the publisher that are counted as missing in bitmap, called under the bitmap's lock
+	private static long neverPublished(String publisherId, SequenceBitmap bitmap) {
+		SequenceBitmap failed = FAILED_PUBLISHES.get(publisherId);
+		if (failed == null) {
+			return 0;
+		}
+		final long maxSequence = bitmap.getMaxSequence();
+		final long[] count = new long[1];
+		synchronized (failed) {
+			failed.forEach(sequence -> {
+				if (sequence <= maxSequence && !bitmap.contains(sequence)) {
+					count[0]++;
+				}
+			});
+		}
+		return count[0];
+	}
+
+	// Summary plus one line per publisher with its first missing ranges
+	public String report() {
+		StringBuilder report = new StringBuilder(summary());
+		for (Map.Entry<String, SequenceBitmap> entry : publishers.entrySet()) {
+			SequenceBitmap bitmap = entry.getValue();
+			synchronized (bitmap) {
+				List<String> ranges = new ArrayList<>();
+				long total = bitmap.missingRanges(ranges, RANGES_PER_PUBLISHER);
+				long neverPublished = neverPublished(entry.getKey(), bitmap);
+				report.append(String.format("%n%s: received=%d maxSequence=%d missing=%d neverPublished=%d lost=%d duplicates=%d maxReorder=%d missingRanges=%s%s",
+						entry.getKey(), bitmap.getReceived(), bitmap.getMaxSequence(), bitmap.getMissing(), neverPublished,
+						bitmap.getMissing() - neverPublished, bitmap.getDuplicates(), bitmap.getMaxReorder(), ranges,
+						total > ranges.size() ? " (" + total + " in total)" : ""));
+			}
+		}
+		return report.toString();
+	}
+
+}
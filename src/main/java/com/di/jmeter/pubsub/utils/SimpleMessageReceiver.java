@@ -24,9 +24,34 @@ import com.google.pubsub.v1.PubsubMessage;
 
 public class SimpleMessageReceiver implements MessageReceiver {
     private final MessagesQueue messagesQueue;
+    private final LatencyRecorder deliveryLatency;
+    private final OrderingTracker orderingTracker;
+    private final boolean deferAck;
+    private final String[] retainedAttributes;
+    private final SequenceTracker sequenceTracker;
 
     public SimpleMessageReceiver(final MessagesQueue messagesQueue) {
+        this(messagesQueue, null, null, false, null, null);
+    }
+
+    // deliveryLatency records publish time to arrival in this JVM, orderingTracker checks the order of delivery, both may be null
+    public SimpleMessageReceiver(final MessagesQueue messagesQueue, final LatencyRecorder deliveryLatency,
+            final OrderingTracker orderingTracker) {
+        this(messagesQueue, deliveryLatency, orderingTracker, false, null, null);
+    }
+
+    // With deferAck the consumer is queued with the message and the sampler replies once it has processed it.
+    // With retainedAttributes only the metadata and these attributes are queued, null keeps the whole message.
+    // sequenceTracker checks for lost and duplicate messages and may be null
+    public SimpleMessageReceiver(final MessagesQueue messagesQueue, final LatencyRecorder deliveryLatency,
+            final OrderingTracker orderingTracker, final boolean deferAck, final String[] retainedAttributes,
+            final SequenceTracker sequenceTracker) {
         this.messagesQueue = messagesQueue;
+        this.deliveryLatency = deliveryLatency;
+        this.orderingTracker = orderingTracker;
+        this.deferAck = deferAck;
+        this.retainedAttributes = retainedAttributes;
+        this.sequenceTracker = sequenceTracker;
     }
 
     @Override
@@ -34,8 +59,24 @@ public class SimpleMessageReceiver implements MessageReceiver {
 //    	System.out.println("Id : " + message.getMessageId());
 //      System.out.println("Data : " + message.getData().toStringUtf8());
         
-        if(messagesQueue.offer(message)){
-            consumer.ack();
+        AckReplyConsumer queuedConsumer = deferAck ? consumer : null;
+        ReceivedMessage received = retainedAttributes != null
+                ? ReceivedMessage.metadataOnly(message, queuedConsumer, retainedAttributes)
+                : new ReceivedMessage(message, queuedConsumer);
+        if (deliveryLatency != null && message.hasPublishTime()) {
+            deliveryLatency.record(received.getReceiveEpochMicros() - MessageAttributes.toEpochMicros(message.getPublishTime()));
+        }
+        if (orderingTracker != null) {
+            orderingTracker.record(message);
+        }
+        if (sequenceTracker != null) {
+            sequenceTracker.record(message);
+        }
+
+        if(messagesQueue.offer(received)){
+            if (!deferAck) {
+                consumer.ack();
+            }
         }
         else{
             consumer.nack();
@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Timestamp;
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Message queue bounded by bytes as well as by count. Messages that do not fit
+ * the in-memory budget are appended to memory-mapped spill segments on disk
+ * and read back in arrival order once the in-memory messages are taken; while
+ * anything is spilled new messages go to the spill too, so order is kept. Ack
+ * consumers of spilled messages stay on the heap. Fully read segments are
+ * deleted. Without a spill directory, or when the spill is full, offers are
+ * refused and the receiver nacks as before. With a spill directory offers
+ * notify a waiting consumer, so a spilled message is read back as soon as a
+ * consumer is free.
+ */
+public class SpillingMessagesQueue extends BufferedMessagesQueue {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SpillingMessagesQueue.class);
+	public static final String SPILL_READ_SUFFIX = ".spill-read";
+	private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+	// length, flags, receive nanos, receive epoch micros, payload size
+	private static final int RECORD_HEADER = 4 + 1 + 8 + 8 + 4;
+	private static final byte FLAG_CONSUMER = 1;
+	// The record holds the metadata (id, publish time, retained attributes) in an otherwise empty message
+	private static final byte FLAG_METADATA = 2;
+
+	private final long maxMemoryBytes;
+	private final Path spillDirectory;
+	private final long maxSpillBytes;
+	private final LatencyRecorder readLatency;
+	private final AtomicLong memoryBytes = new AtomicLong();
+	private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+	private final ArrayDeque<AckReplyConsumer> spilledConsumers = new ArrayDeque<>();
+	private final LongAdder spilledMessages = new LongAdder();
+	private final LongAdder spilledBytes = new LongAdder();
+	private final LongAdder readBackMessages = new LongAdder();
+	private final LongAdder refused = new LongAdder();
+	private volatile int spilledCount;
+	private long spillBytesOnDisk;
+	private int segmentSequence;
+
+	// spillDirectory may be null to only enforce the byte budget, maxSpillBytes <= 0 leaves the spill unbounded
+	public SpillingMessagesQueue(String implementation, int maxQueueSize, String waitStrategy, long maxMemoryBytes,
+			Path spillDirectory, long maxSpillBytes, LatencyRecorder readLatency) throws IOException {
+		super(newBuffer(implementation, maxQueueSize, waitStrategy));
+		this.maxMemoryBytes = maxMemoryBytes > 0 ? maxMemoryBytes : Long.MAX_VALUE;
+		this.spillDirectory = spillDirectory == null ? null
+				: Files.createTempDirectory(Files.createDirectories(spillDirectory), "pubsub-spill-");
+		this.maxSpillBytes = maxSpillBytes > 0 ? maxSpillBytes : Long.MAX_VALUE;
+		this.readLatency = readLatency;
+	}
+
+	@Override
+	public boolean offer(ReceivedMessage message) {
+		if (spillDirectory == null) {
+			if (offerInMemory(message)) {
+				return true;
+			}
+			refused.increment();
+			return false;
+		}
+		// Deciding between memory and spill under the spill lock, a message must not overtake older ones on disk
+		synchronized (this) {
+			if ((spilledCount == 0 && offerInMemory(message)) || spill(message)) {
+				notify();
+				return true;
+			}
+		}
+		refused.increment();
+		return false;
+	}
+
+	private boolean offerInMemory(ReceivedMessage message) {
+		int size = message.getRetainedBytes();
+		long bytes = memoryBytes.addAndGet(size);
+		// A message is always admitted into an empty queue, however large
+		if ((bytes <= maxMemoryBytes || bytes == size) && super.offer(message)) {
+			return true;
+		}
+		memoryBytes.addAndGet(-size);
+		return false;
+	}
+
+	@Override
+	public ReceivedMessage take() throws InterruptedException {
+		return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	// With a spill directory consumers wait on the queue's monitor, every offer (to memory or to disk) notifies one
+	@Override
+	public ReceivedMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+		if (spillDirectory == null) {
+			ReceivedMessage message = super.poll(timeout, unit);
+			if (message != null) {
+				memoryBytes.addAndGet(-message.getRetainedBytes());
+			}
+			return message;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (true) {
+			ReceivedMessage message = pollNow();
+			if (message != null) {
+				return message;
+			}
+			synchronized (this) {
+				// Offers hold the monitor, so nothing can arrive between this check and the wait
+				if (super.getSize() == 0 && spilledCount == 0) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						return null;
+					}
+					TimeUnit.NANOSECONDS.timedWait(this, remaining);
+				}
+			}
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super ReceivedMessage> target, int maxMessages) {
+		int drained = 0;
+		ReceivedMessage message;
+		while (drained < maxMessages && (message = pollNow()) != null) {
+			target.add(message);
+			drained++;
+		}
+		return drained;
+	}
+
+	@Override
+	public int getSize() {
+		return super.getSize() + spilledCount;
+	}
+
+	// Spilled messages waiting for a deferred ack are nacked, so they are redelivered instead of sitting out their lease
+	@Override
+	public void close() {
+		synchronized (this) {
+			for (Segment segment : segments) {
+				segment.delete();
+			}
+			segments.clear();
+			if (!spilledConsumers.isEmpty()) {
+				LOGGER.info(String.format("Nacking %d spilled messages still waiting for their ack", spilledConsumers.size()));
+			}
+			for (AckReplyConsumer consumer : spilledConsumers) {
+				consumer.nack();
+			}
+			spilledConsumers.clear();
+			spilledCount = 0;
+			spillBytesOnDisk = 0;
+		}
+		if (spillDirectory != null) {
+			try {
+				Files.deleteIfExists(spillDirectory);
+			} catch (IOException e) {
+				LOGGER.warn("Could not delete spill directory " + spillDirectory, e);
+			}
+		}
+	}
+
+	public String summary() {
+		return String.format("spilledMessages=%d spilledBytes=%d readBack=%d stillSpilled=%d refused=%d",
+				spilledMessages.sum(), spilledBytes.sum(), readBackMessages.sum(), spilledCount, refused.sum());
+	}
+
+	// In-memory messages first, they are older than anything spilled
+	private ReceivedMessage pollNow() {
+		try {
+			ReceivedMessage message = super.poll(0, TimeUnit.NANOSECONDS);
+			if (message != null) {
+				memoryBytes.addAndGet(-message.getRetainedBytes());
+				return message;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		return spilledCount == 0 ? null : readSpilled();
+	}
+
+	private synchronized boolean spill(ReceivedMessage message) {
+		byte[] data = message.isMetadataOnly() ? metadataCarrier(message).toByteArray() : message.getMessage().toByteArray();
+		int length = RECORD_HEADER + data.length;
+		if (spillBytesOnDisk + length > maxSpillBytes) {
+			return false;
+		}
+		try {
+			Segment segment = segments.peekLast();
+			if (segment == null || segment.remaining() < length) {
+				segment = new Segment(spillDirectory.resolve("segment-" + (segmentSequence++)), Math.max(SEGMENT_SIZE, length));
+				segments.addLast(segment);
+			}
+			AckReplyConsumer consumer = message.getConsumer();
+			byte flags = (byte) ((consumer != null ? FLAG_CONSUMER : 0) | (message.isMetadataOnly() ? FLAG_METADATA : 0));
+			segment.append(data, flags, message.getReceiveNanos(), message.getReceiveEpochMicros(), message.getSize());
+			if (consumer != null) {
+				spilledConsumers.addLast(consumer);
+			}
+		} catch (IOException e) {
+			LOGGER.error("Could not spill message to " + spillDirectory, e);
+			return false;
+		}
+		spillBytesOnDisk += length;
+		spilledCount++;
+		spilledMessages.increment();
+		spilledBytes.add(length);
+		return true;
+	}
+
+	private synchronized ReceivedMessage readSpilled() {
+		Segment segment = segments.peekFirst();
+		while (segment != null && segment.isFullyRead()) {
+			if (segment == segments.peekLast()) {
+				return null;
+			}
+			segments.removeFirst().delete();
+			segment = segments.peekFirst();
+		}
+		if (segment == null || !segment.hasUnread()) {
+			return null;
+		}
+		long start = System.nanoTime();
+		ReceivedMessage message;
+		int length;
+		try {
+			length = segment.readLength();
+			byte flags = segment.buffer.get();
+			long receiveNanos = segment.buffer.getLong();
+			long receiveEpochMicros = segment.buffer.getLong();
+			int size = segment.buffer.getInt();
+			byte[] data = new byte[length - RECORD_HEADER];
+			segment.buffer.get(data);
+			segment.readPos = segment.buffer.position();
+			AckReplyConsumer consumer = (flags & FLAG_CONSUMER) != 0 ? spilledConsumers.pollFirst() : null;
+			PubsubMessage stored = PubsubMessage.parseFrom(data);
+			if ((flags & FLAG_METADATA) != 0) {
+				message = new ReceivedMessage(stored.getMessageId(),
+						stored.hasPublishTime() ? MessageAttributes.toEpochMicros(stored.getPublishTime()) : -1, size,
+						toPairs(stored.getAttributesMap()), consumer, receiveNanos, receiveEpochMicros);
+			} else {
+				message = new ReceivedMessage(stored, consumer, receiveNanos, receiveEpochMicros);
+			}
+		} catch (InvalidProtocolBufferException e) {
+			throw new IllegalStateException("Corrupt spill segment " + segment.file, e);
+		}
+		spillBytesOnDisk -= length;
+		spilledCount--;
+		readBackMessages.increment();
+		if (readLatency != null) {
+			readLatency.recordNanos(System.nanoTime() - start);
+		}
+		return message;
+	}
+
+	private static PubsubMessage metadataCarrier(ReceivedMessage message) {
+		PubsubMessage.Builder builder = PubsubMessage.newBuilder().setMessageId(message.getMessageId());
+		long publishMicros = message.getPublishEpochMicros();
+		if (publishMicros >= 0) {
+			builder.setPublishTime(Timestamp.newBuilder().setSeconds(publishMicros / 1_000_000L)
+					.setNanos((int) (publishMicros % 1_000_000L) * 1000));
+		}
+		String[] attributes = message.getRetainedAttributes();
+		for (int i = 0; i < attributes.length; i += 2) {
+			builder.putAttributes(attributes[i], attributes[i + 1]);
+		}
+		return builder.build();
+	}
+
+	private static String[] toPairs(Map<String, String> attributes) {
+		String[] pairs = new String[attributes.size() * 2];
+		int i = 0;
+		for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+			pairs[i++] = attribute.getKey();
+			pairs[i++] = attribute.getValue();
+		}
+		return pairs;
+	}
+
+	// Append-only memory-mapped file, guarded by the queue's monitor
+	private static final class Segment {
+		private final Path file;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+		private int writePos;
+		private int readPos;
+
+		Segment(Path file, int size) throws IOException {
+			this.file = file;
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+
+		int remaining() {
+			return buffer.capacity() - writePos;
+		}
+
+		void append(byte[] data, byte flags, long receiveNanos, long receiveEpochMicros, int payloadSize) {
+			buffer.position(writePos);
+			buffer.putInt(RECORD_HEADER + data.length);
+			buffer.put(flags);
+			buffer.putLong(receiveNanos);
+			buffer.putLong(receiveEpochMicros);
+			buffer.putInt(payloadSize);
+			buffer.put(data);
+			writePos = buffer.position();
+		}
+
+		boolean hasUnread() {
+			return readPos < writePos;
+		}
+
+		// Nothing left to read and nothing more will be written
+		boolean isFullyRead() {
+			return readPos == writePos && readPos > 0;
+		}
+
+		int readLength() {
+			buffer.position(readPos);
+			return buffer.getInt();
+		}
+
+		// The buffer must not be used afterwards, the mapping is released before the file is deleted
+		void delete() {
+			MappedBuffers.unmap(buffer);
+			try {
+				channel.close();
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				LOGGER.warn("Could not delete spill segment " + file, e);
+			}
+		}
+	}
+
+}
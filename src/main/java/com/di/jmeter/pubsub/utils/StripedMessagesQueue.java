@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Message queue split into stripes so consumers do not contend on one queue.
+ * The receiver spreads messages round-robin or by the hash of an attribute
+ * (messages with equal values share a stripe), and every consumer thread is
+ * given a home stripe on its first call. A consumer takes from its home
+ * stripe and steals from the others when it is empty, so stripes without an
+ * owner or with a slow one are still drained. Consumers finding every stripe
+ * empty park until an offer wakes one of them, so a message never waits for a
+ * consumer's poll slice to run out. Every consumer thread has one waiter node
+ * that is flagged while it parks and queued at most once, so parking and waking
+ * are constant time however many consumers are idle.
+ */
+public class StripedMessagesQueue extends MessagesQueue {
+
+	public static final String SELECTION_ROUND_ROBIN = "roundRobin";
+	public static final String SELECTION_ATTRIBUTE_HASH = "attributeHash";
+
+	// Upper bound of one park. Offers wake consumers, so this is only a safety net and kept long enough that idle
+	// consumers do not spin
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final List<BlockingQueue<ReceivedMessage>> stripes;
+	// Waiter nodes of parking consumers, and stale nodes of consumers that stopped waiting, dropped when polled
+	private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<Waiter> waiter = ThreadLocal.withInitial(Waiter::new);
+	private final String hashAttribute;
+	private final AtomicLong nextStripe = new AtomicLong();
+	private final AtomicInteger nextOwner = new AtomicInteger();
+	private final ThreadLocal<Integer> homeStripe = ThreadLocal.withInitial(this::assignHome);
+
+	// hashAttribute null or empty spreads round-robin, the capacity is split evenly over the stripes
+	public StripedMessagesQueue(String implementation, int maxQueueSize, String waitStrategy, int stripeCount,
+			String hashAttribute) {
+		int count = Math.max(1, stripeCount);
+		int capacity = Math.max(1, (maxQueueSize + count - 1) / count);
+		this.stripes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			stripes.add(newBuffer(implementation, capacity, waitStrategy));
+		}
+		this.hashAttribute = hashAttribute == null || hashAttribute.trim().isEmpty() ? null : hashAttribute.trim();
+	}
+
+	@Override
+	public boolean offer(ReceivedMessage message) {
+		if (!offerToStripe(message)) {
+			return false;
+		}
+		wakeOne();
+		return true;
+	}
+
+	// Unparks one parked consumer, skipping the nodes of consumers that stopped waiting
+	private void wakeOne() {
+		Waiter next;
+		while ((next = waiters.poll()) != null) {
+			// Cleared before the flag is read, a consumer flagging itself meanwhile queues its node again
+			next.queued.set(false);
+			if (next.parked.compareAndSet(true, false)) {
+				LockSupport.unpark(next.thread);
+				return;
+			}
+		}
+	}
+
+	private boolean offerToStripe(ReceivedMessage message) {
+		String value = hashAttribute == null ? null : message.getAttribute(hashAttribute);
+		if (value != null) {
+			return stripes.get(Math.floorMod(value.hashCode(), stripes.size())).offer(message);
+		}
+		int first = (int) Math.floorMod(nextStripe.getAndIncrement(), (long) stripes.size());
+		for (int i = 0; i < stripes.size(); i++) {
+			if (stripes.get((first + i) % stripes.size()).offer(message)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public ReceivedMessage take() throws InterruptedException {
+		return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	// Parks while every stripe is empty, the next offer unparks one waiting consumer
+	@Override
+	public ReceivedMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+		int home = homeStripe.get();
+		long remaining = unit.toNanos(timeout);
+		long deadline = System.nanoTime() + remaining;
+		Waiter node = waiter.get();
+		while (true) {
+			ReceivedMessage message = pollAny(home);
+			if (message != null) {
+				return message;
+			}
+			if (remaining <= 0) {
+				return null;
+			}
+			node.parked.set(true);
+			if (node.queued.compareAndSet(false, true)) {
+				waiters.add(node);
+			}
+			// Looked at again once flagged, an offer made in between could not have woken this thread
+			message = pollAny(home);
+			if (message == null) {
+				LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS));
+			}
+			if (!node.parked.compareAndSet(true, false) && message != null) {
+				// An offer picked this thread while it found a message on its own, pass the wake-up on
+				wakeOne();
+			}
+			if (message != null) {
+				return message;
+			}
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			remaining = deadline - System.nanoTime();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super ReceivedMessage> target, int maxMessages) {
+		int home = homeStripe.get();
+		int drained = 0;
+		for (int i = 0; i < stripes.size() && drained < maxMessages; i++) {
+			drained += stripes.get((home + i) % stripes.size()).drainTo(target, maxMessages - drained);
+		}
+		return drained;
+	}
+
+	@Override
+	public int getSize() {
+		int size = 0;
+		for (BlockingQueue<ReceivedMessage> stripe : stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+
+	public int getStripeCount() {
+		return stripes.size();
+	}
+
+	private ReceivedMessage pollAny(int home) {
+		for (int i = 0; i < stripes.size(); i++) {
+			ReceivedMessage message = stripes.get((home + i) % stripes.size()).poll();
+			if (message != null) {
+				return message;
+			}
+		}
+		return null;
+	}
+
+	private Integer assignHome() {
+		return nextOwner.getAndIncrement() % stripes.size();
+	}
+
+	private static final class Waiter {
+		private final Thread thread = Thread.currentThread();
+		// Set while the consumer may park, cleared by the consumer or by the offer that unparks it
+		private final AtomicBoolean parked = new AtomicBoolean();
+		// Set while the node is in the waiters queue, so it is queued at most once
+		private final AtomicBoolean queued = new AtomicBoolean();
+	}
+
+}
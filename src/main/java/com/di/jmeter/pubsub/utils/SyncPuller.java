@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.AcknowledgeRequest;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import com.google.pubsub.v1.PullRequest;
+import com.google.pubsub.v1.PullResponse;
+
+/**
+ * Unary Pull and Acknowledge RPCs on one subscription, for samplers that pull
+ * synchronously instead of reading the streaming-pull queue. The stub is thread-safe
+ * and shared by all samplers of the connection.
+ */
+public class SyncPuller {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SyncPuller.class);
+
+	private final SubscriberStub stub;
+	private final String subscription;
+	private final AtomicLong failedReplies = new AtomicLong();
+	private final AtomicLong failedAckIds = new AtomicLong();
+
+	public SyncPuller(SubscriberStub stub, String subscription) {
+		this.stub = stub;
+		this.subscription = subscription;
+	}
+
+	// Blocks for one Pull RPC, the response may hold fewer than maxMessages or no messages
+	public PullResponse pull(int maxMessages) {
+		return stub.pullCallable().call(PullRequest.newBuilder()
+				.setSubscription(subscription)
+				.setMaxMessages(Math.max(1, maxMessages))
+				.build());
+	}
+
+	// One RPC for all ack ids, nack sets the ack deadline to zero for immediate redelivery. The future completes once
+	// the server answered; failed RPCs are counted here, their messages are redelivered after the ack deadline
+	public ApiFuture<Empty> reply(final List<String> ackIds, boolean ack) {
+		ApiFuture<Empty> future;
+		if (ack) {
+			future = stub.acknowledgeCallable().futureCall(AcknowledgeRequest.newBuilder()
+					.setSubscription(subscription)
+					.addAllAckIds(ackIds)
+					.build());
+		} else {
+			future = stub.modifyAckDeadlineCallable().futureCall(ModifyAckDeadlineRequest.newBuilder()
+					.setSubscription(subscription)
+					.addAllAckIds(ackIds)
+					.setAckDeadlineSeconds(0)
+					.build());
+		}
+		ApiFutures.addCallback(future, new ApiFutureCallback<Empty>() {
+			@Override
+			public void onSuccess(Empty empty) {
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				failedAckIds.addAndGet(ackIds.size());
+				if (failedReplies.getAndIncrement() == 0) {
+					LOGGER.warn(String.format("%s RPC for %d messages of %s failed, further failures are counted only",
+							ack ? "Acknowledge" : "ModifyAckDeadline", ackIds.size(), subscription), t);
+				}
+			}
+		}, MoreExecutors.directExecutor());
+		return future;
+	}
+
+	public void close() throws InterruptedException {
+		stub.shutdown();
+		stub.awaitTermination(10, TimeUnit.SECONDS);
+		if (failedReplies.get() > 0) {
+			LOGGER.warn(String.format("%d ack/nack RPCs for %d messages of %s failed", failedReplies.get(), failedAckIds.get(),
+					subscription));
+		}
+	}
+
+}
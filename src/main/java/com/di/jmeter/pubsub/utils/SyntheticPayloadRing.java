@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.di.jmeter.pubsub.codec.PayloadCodec;
+import com.google.protobuf.UnsafeByteOperations;
+
+/**
+ * Ring of pre-built synthetic payloads whose sizes follow a configured
+ * distribution. Entries are generated (and encoded) once, threads then pick
+ * them at random without allocating.
+ *
+ * Size distributions: {@code fixed:<bytes>}, {@code uniform:<min>-<max>},
+ * {@code lognormal:<median>,<sigma>} or {@code histogram:<file>} with one
+ * {@code <bytes>,<weight>} pair per line.
+ */
+public class SyntheticPayloadRing {
+
+	public static final String CONTENT_RANDOM = "random";
+	public static final String CONTENT_COMPRESSIBLE = "compressible";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticPayloadRing.class);
+	private static final Map<String, SyntheticPayloadRing> RINGS = new ConcurrentHashMap<>();
+	private static final int MAX_PAYLOAD_SIZE = 10 * 1000 * 1000;
+	private static final String[] WORDS = { "order", "customer", "amount", "currency", "status", "created", "updated",
+			"payment", "shipment", "address", "account", "region", "event", "version", "source", "true", "false",
+			"null", "EUR", "USD", "pending", "completed" };
+
+	private final Entry[] entries;
+
+	private SyntheticPayloadRing(Entry[] entries) {
+		this.entries = entries;
+	}
+
+	// Returns the ring for these settings, building it on first use
+	public static SyntheticPayloadRing get(String sizes, String content, int ringSize, String attributeCount,
+			PayloadCodec codec) {
+		String key = sizes + '|' + content + '|' + ringSize + '|' + attributeCount + '|'
+				+ (codec == null ? "none" : codec.getName());
+		return RINGS.computeIfAbsent(key, k -> build(sizes, content, ringSize, attributeCount, codec));
+	}
+
+	public static void clear() {
+		RINGS.clear();
+	}
+
+	public Entry next() {
+		return entries[ThreadLocalRandom.current().nextInt(entries.length)];
+	}
+
+	private static SyntheticPayloadRing build(String sizes, String content, int ringSize, String attributeCount,
+			PayloadCodec codec) {
+		if (ringSize < 1) {
+			throw new IllegalArgumentException("Generator ring size must be at least 1");
+		}
+		Random random = new Random(ringSize * 31L + sizes.hashCode());
+		SizeDistribution distribution = parseSizes(sizes.trim());
+		int[] attributeRange = parseRange(attributeCount.trim());
+		boolean compressible = CONTENT_COMPRESSIBLE.equals(content);
+
+		Entry[] entries = new Entry[ringSize];
+		long totalBytes = 0;
+		for (int i = 0; i < ringSize; i++) {
+			int size = Math.min(MAX_PAYLOAD_SIZE, Math.max(0, distribution.sample(random)));
+			byte[] data = compressible ? compressibleBytes(size, random) : randomBytes(size, random);
+			EncodedPayload payload = EncodedPayload.encode(UnsafeByteOperations.unsafeWrap(data), codec);
+			int attributes = attributeRange[0] + random.nextInt(attributeRange[1] - attributeRange[0] + 1);
+			entries[i] = new Entry(payload, attributes(attributes, random));
+			totalBytes += payload.getData().size();
+		}
+		LOGGER.info(String.format("Built synthetic payload ring of %d entries (%s, %s), %d bytes", ringSize, sizes,
+				content, totalBytes));
+		return new SyntheticPayloadRing(entries);
+	}
+
+	private static byte[] randomBytes(int size, Random random) {
+		byte[] data = new byte[size];
+		random.nextBytes(data);
+		return data;
+	}
+
+	// JSON-like text from a small vocabulary, compresses roughly like real business events
+	private static byte[] compressibleBytes(int size, Random random) {
+		StringBuilder builder = new StringBuilder(size + 16);
+		while (builder.length() < size) {
+			builder.append('"').append(WORDS[random.nextInt(WORDS.length)]).append("\":");
+			if (random.nextBoolean()) {
+				builder.append(random.nextInt(100000));
+			} else {
+				builder.append('"').append(WORDS[random.nextInt(WORDS.length)]).append('"');
+			}
+			builder.append(',');
+		}
+		builder.setLength(size);
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static Map<String, String> attributes(int count, Random random) {
+		if (count == 0) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> attributes = new HashMap<>();
+		for (int i = 0; i < count; i++) {
+			attributes.put("attr_" + i, Long.toHexString(random.nextLong()));
+		}
+		return Collections.unmodifiableMap(attributes);
+	}
+
+	private static int[] parseRange(String range) {
+		try {
+			int dash = range.indexOf('-');
+			if (dash < 0) {
+				int value = Integer.parseInt(range);
+				return new int[] { value, value };
+			}
+			int min = Integer.parseInt(range.substring(0, dash).trim());
+			int max = Integer.parseInt(range.substring(dash + 1).trim());
+			if (min < 0 || max < min) {
+				throw new IllegalArgumentException("Invalid range " + range);
+			}
+			return new int[] { min, max };
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid range " + range, e);
+		}
+	}
+
+	private static SizeDistribution parseSizes(String spec) {
+		int colon = spec.indexOf(':');
+		if (colon < 0) {
+			throw new IllegalArgumentException("Invalid size distribution " + spec + ", expected <type>:<parameters>");
+		}
+		String type = spec.substring(0, colon).trim();
+		String parameters = spec.substring(colon + 1).trim();
+		try {
+			switch (type) {
+			case "fixed":
+				int size = Integer.parseInt(parameters);
+				return random -> size;
+			case "uniform":
+				int[] range = parseRange(parameters);
+				return random -> range[0] + random.nextInt(range[1] - range[0] + 1);
+			case "lognormal":
+				String[] values = parameters.split(",");
+				double mu = Math.log(Double.parseDouble(values[0].trim()));
+				double sigma = Double.parseDouble(values[1].trim());
+				return random -> (int) Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+			case "histogram":
+				return parseHistogram(parameters);
+			default:
+				throw new IllegalArgumentException("Unknown size distribution " + type);
+			}
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Invalid size distribution " + spec, e);
+		}
+	}
+
+	private static SizeDistribution parseHistogram(String file) {
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to read size histogram " + file, e);
+		}
+		List<int[]> buckets = new ArrayList<>();
+		long totalWeight = 0;
+		for (String line : lines) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] values = line.split(",");
+			int size = Integer.parseInt(values[0].trim());
+			int weight = Integer.parseInt(values[1].trim());
+			totalWeight += weight;
+			buckets.add(new int[] { size, weight });
+		}
+		if (totalWeight <= 0) {
+			throw new IllegalArgumentException("Size histogram " + file + " has no weights");
+		}
+		final long total = totalWeight;
+		return random -> {
+			long pick = (long) (random.nextDouble() * total);
+			for (int[] bucket : buckets) {
+				pick -= bucket[1];
+				if (pick < 0) {
+					return bucket[0];
+				}
+			}
+			return buckets.get(buckets.size() - 1)[0];
+		};
+	}
+
+	private interface SizeDistribution {
+		int sample(Random random);
+	}
+
+	/**
+	 * One pre-built payload with its attributes.
+	 */
+	public static final class Entry {
+		private final EncodedPayload payload;
+		private final Map<String, String> attributes;
+
+		Entry(EncodedPayload payload, Map<String, String> attributes) {
+			this.payload = payload;
+			this.attributes = attributes;
+		}
+
+		public EncodedPayload getPayload() {
+			return payload;
+		}
+
+		public Map<String, String> getAttributes() {
+			return attributes;
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import com.google.api.gax.grpc.ChannelPoolSettings;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
+import org.threeten.bp.Duration;
+
+/**
+ * gRPC channel settings shared by the publisher and subscriber configs. Empty
+ * values keep the default of the client library.
+ */
+public class TransportSettings {
+
+	private final Integer channelCount;
+	private final Integer maxInboundMessageSize;
+	private final Long keepAliveTimeMs;
+	private final Long keepAliveTimeoutMs;
+	private final boolean keepAliveWithoutCalls;
+
+	// Throws NumberFormatException for values that are neither empty nor numbers
+	public TransportSettings(String channelCount, String maxInboundMessageSize, String keepAliveTime,
+			String keepAliveTimeout, boolean keepAliveWithoutCalls) {
+		this.channelCount = isEmpty(channelCount) ? null : Integer.valueOf(channelCount.trim());
+		this.maxInboundMessageSize = isEmpty(maxInboundMessageSize) ? null : Integer.valueOf(maxInboundMessageSize.trim());
+		this.keepAliveTimeMs = isEmpty(keepAliveTime) ? null : Long.valueOf(keepAliveTime.trim());
+		this.keepAliveTimeoutMs = isEmpty(keepAliveTimeout) ? null : Long.valueOf(keepAliveTimeout.trim());
+		this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+	}
+
+	// Applies the configured values on top of the client's default transport builder
+	public InstantiatingGrpcChannelProvider createChannelProvider(InstantiatingGrpcChannelProvider.Builder builder) {
+		if (channelCount != null) {
+			builder.setChannelPoolSettings(ChannelPoolSettings.staticallySized(channelCount));
+		}
+		if (maxInboundMessageSize != null) {
+			builder.setMaxInboundMessageSize(maxInboundMessageSize);
+		}
+		if (keepAliveTimeMs != null) {
+			builder.setKeepAliveTime(Duration.ofMillis(keepAliveTimeMs));
+		}
+		if (keepAliveTimeoutMs != null) {
+			builder.setKeepAliveTimeout(Duration.ofMillis(keepAliveTimeoutMs));
+		}
+		if (keepAliveWithoutCalls) {
+			builder.setKeepAliveWithoutCalls(true);
+		}
+		return builder.build();
+	}
+
+	// Describes the settings the provider resolved to, so a run can be reproduced from its log
+	public String describe(InstantiatingGrpcChannelProvider provider) {
+		return String.format(
+				"channels=%s maxInboundMessageSize=%s keepAliveTime=%s keepAliveTimeout=%s keepAliveWithoutCalls=%s",
+				describe(provider.getChannelPoolSettings()),
+				maxInboundMessageSize == null ? "default" : maxInboundMessageSize,
+				orDefault(provider.getKeepAliveTime()), orDefault(provider.getKeepAliveTimeout()),
+				orDefault(provider.getKeepAliveWithoutCalls()));
+	}
+
+	// Channel count of the resolved pool, a range when the pool is dynamically sized
+	private static String describe(ChannelPoolSettings pool) {
+		if (pool.getMinChannelCount() == pool.getMaxChannelCount()) {
+			return String.valueOf(pool.getMaxChannelCount());
+		}
+		return String.format("%d (%d..%d)", pool.getInitialChannelCount(), pool.getMinChannelCount(),
+				pool.getMaxChannelCount());
+	}
+
+	private static Object orDefault(Object value) {
+		return value == null ? "default" : value;
+	}
+
+	private static boolean isEmpty(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+
+}
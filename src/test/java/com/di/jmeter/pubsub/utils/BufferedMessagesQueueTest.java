@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BufferedMessagesQueueTest {
+
+	@Test
+	public void refusesOffersOverCapacity() {
+		for (String implementation : new String[] { MessagesQueue.IMPLEMENTATION_LINKED, MessagesQueue.IMPLEMENTATION_RING }) {
+			MessagesQueue queue = MessagesQueue.create(implementation, 2, MpmcRingBuffer.WAIT_PARK);
+			assertTrue(queue.offer(QueueConservation.message(1)));
+			assertTrue(queue.offer(QueueConservation.message(2)));
+			assertFalse(implementation, queue.offer(QueueConservation.message(3)));
+			assertEquals(2, queue.getSize());
+		}
+	}
+
+	@Test
+	public void takesPollsAndDrainsInArrivalOrder() throws InterruptedException {
+		for (String implementation : new String[] { MessagesQueue.IMPLEMENTATION_LINKED, MessagesQueue.IMPLEMENTATION_RING }) {
+			MessagesQueue queue = MessagesQueue.create(implementation, 16, MpmcRingBuffer.WAIT_PARK);
+			for (int i = 0; i < 5; i++) {
+				assertTrue(queue.offer(QueueConservation.message(i)));
+			}
+			assertEquals(Integer.valueOf(0), QueueConservation.value(queue.take()));
+			assertEquals(Integer.valueOf(1), QueueConservation.value(queue.poll(1, TimeUnit.SECONDS)));
+			List<ReceivedMessage> drained = new ArrayList<>();
+			assertEquals(2, queue.drainTo(drained, 2));
+			assertEquals(Integer.valueOf(2), QueueConservation.value(drained.get(0)));
+			assertEquals(Integer.valueOf(3), QueueConservation.value(drained.get(1)));
+			assertEquals(1, queue.getSize());
+			queue.take();
+			assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	@Test
+	public void conservesMessagesUnderConcurrentProducersAndConsumers() throws InterruptedException {
+		for (String implementation : new String[] { MessagesQueue.IMPLEMENTATION_LINKED, MessagesQueue.IMPLEMENTATION_RING }) {
+			final MessagesQueue queue = MessagesQueue.create(implementation, 256, MpmcRingBuffer.WAIT_PARK);
+			QueueConservation.run(4, 4, 10000, value -> queue.offer(QueueConservation.message(value)),
+					() -> QueueConservation.value(queue.poll(10, TimeUnit.MILLISECONDS)));
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CorrelationIndexTest {
+
+	private final List<CorrelationIndex> indexes = new ArrayList<>();
+
+	@After
+	public void closeIndexes() throws InterruptedException {
+		for (CorrelationIndex index : indexes) {
+			index.close();
+		}
+	}
+
+	private CorrelationIndex newIndex(long ttlMs) {
+		CorrelationIndex index = new CorrelationIndex("test", ttlMs);
+		indexes.add(index);
+		return index;
+	}
+
+	@Test
+	public void matchesAMessageOfferedBeforeTheWait() throws InterruptedException {
+		CorrelationIndex index = newIndex(60000);
+		ReceivedMessage message = QueueConservation.message(1);
+		assertTrue(index.offer("a", message));
+		assertSame(message, index.await("a", 1, TimeUnit.SECONDS));
+		assertEquals(0, index.getPending());
+	}
+
+	@Test
+	public void matchesAMessageOfferedDuringTheWait() throws Exception {
+		final CorrelationIndex index = newIndex(60000);
+		final AtomicReference<ReceivedMessage> received = new AtomicReference<>();
+		Thread waiter = new Thread(() -> {
+			try {
+				received.set(index.await("a", 30, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		waiter.start();
+		while (index.getPending() == 0) {
+			Thread.sleep(1);
+		}
+		ReceivedMessage message = QueueConservation.message(1);
+		assertTrue(index.offer("a", message));
+		waiter.join(TimeUnit.SECONDS.toMillis(5));
+		assertSame(message, received.get());
+		assertEquals(0, index.getPending());
+	}
+
+	@Test
+	public void refusesASecondMessageWithTheSameId() {
+		CorrelationIndex index = newIndex(60000);
+		assertTrue(index.offer("a", QueueConservation.message(1)));
+		assertFalse(index.offer("a", QueueConservation.message(2)));
+		assertTrue(index.summary(), index.summary().contains("duplicates=1"));
+	}
+
+	@Test
+	public void indexesAMessageArrivingAfterItsWaiterTimedOut() throws InterruptedException {
+		CorrelationIndex index = newIndex(60000);
+		assertNull(index.await("a", 10, TimeUnit.MILLISECONDS));
+		assertEquals(0, index.getPending());
+		ReceivedMessage message = QueueConservation.message(1);
+		assertTrue(index.offer("a", message));
+		assertSame(message, index.await("a", 1, TimeUnit.SECONDS));
+		assertTrue(index.summary(), index.summary().contains("timeouts=1"));
+	}
+
+	@Test
+	public void acksUnclaimedMessagesAfterTheTtl() throws InterruptedException {
+		CorrelationIndex index = newIndex(100);
+		CountingAckReplyConsumer consumer = new CountingAckReplyConsumer();
+		assertTrue(index.offer("a", new ReceivedMessage(QueueConservation.message(1).getMessage(), consumer)));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (consumer.replies() == 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, consumer.acks.get());
+		assertEquals(0, index.getPending());
+		assertNull(index.await("a", 10, TimeUnit.MILLISECONDS));
+	}
+
+	// Waits that find their message just as the TTL evicts it: either the waiter or the eviction replies, not both
+	@Test
+	public void repliesToEveryMessageOnceWhenWaitsRaceEviction() throws InterruptedException {
+		final CorrelationIndex index = newIndex(50);
+		final int messages = 4000;
+		final int threads = 4;
+		final CountingAckReplyConsumer[] consumers = new CountingAckReplyConsumer[messages];
+		for (int i = 0; i < messages; i++) {
+			consumers[i] = new CountingAckReplyConsumer();
+			assertTrue(index.offer(Integer.toString(i), new ReceivedMessage(QueueConservation.message(i).getMessage(), consumers[i])));
+		}
+		List<Thread> waiters = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			final int first = t;
+			waiters.add(new Thread(() -> {
+				try {
+					// Spread over the ticks in which the eviction runs
+					for (int i = first; i < messages; i += threads) {
+						if (i % 40 < threads) {
+							Thread.sleep(1);
+						}
+						ReceivedMessage message = index.await(Integer.toString(i), 0, TimeUnit.MILLISECONDS);
+						if (message != null) {
+							message.reply(true);
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, "waiter-" + t));
+		}
+		for (Thread waiter : waiters) {
+			waiter.start();
+		}
+		for (Thread waiter : waiters) {
+			waiter.join(TimeUnit.SECONDS.toMillis(60));
+			assertFalse(waiter.isAlive());
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (index.getPending() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		for (int i = 0; i < messages; i++) {
+			assertEquals("Replies to message " + i, 1, consumers[i].replies());
+		}
+	}
+
+	// Waits that run out just as their message arrives: every message is claimed by its waiter or evicted and acked,
+	// never both and never neither
+	@Test
+	public void repliesToEveryMessageOnceWhenWaitsRaceOffers() throws InterruptedException {
+		final CorrelationIndex index = newIndex(50);
+		final int messages = 2000;
+		final int threads = 4;
+		final AtomicReferenceArray<CountingAckReplyConsumer> consumers = new AtomicReferenceArray<>(messages);
+		final AtomicInteger matched = new AtomicInteger();
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			final int first = t;
+			workers.add(new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				try {
+					for (int i = first; i < messages; i += threads) {
+						consumers.set(i, new CountingAckReplyConsumer());
+						ReceivedMessage message = index.await(Integer.toString(i), random.nextInt(200), TimeUnit.MICROSECONDS);
+						if (message != null) {
+							matched.incrementAndGet();
+							message.reply(true);
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, "waiter-" + t));
+			workers.add(new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = first; i < messages; i += threads) {
+					while (consumers.get(i) == null) {
+						Thread.yield();
+					}
+					long until = System.nanoTime() + random.nextInt(200000);
+					while (System.nanoTime() < until) {
+						// Lands the offer anywhere around the end of the wait
+					}
+					index.offer(Integer.toString(i), new ReceivedMessage(QueueConservation.message(i).getMessage(), consumers.get(i)));
+				}
+			}, "offerer-" + t));
+		}
+		for (Thread worker : workers) {
+			worker.start();
+		}
+		for (Thread worker : workers) {
+			worker.join(TimeUnit.SECONDS.toMillis(60));
+			assertFalse(worker.isAlive());
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (index.getPending() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(index.summary(), 0, index.getPending());
+		for (int i = 0; i < messages; i++) {
+			assertEquals("Replies to message " + i, 1, consumers.get(i).replies());
+		}
+		assertTrue(index.summary(), index.summary().contains("matched=" + matched.get() + " "));
+	}
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+
+// Counts the replies made through it, standing in for the subscriber's ack handle
+final class CountingAckReplyConsumer implements AckReplyConsumer {
+
+	final AtomicInteger acks = new AtomicInteger();
+	final AtomicInteger nacks = new AtomicInteger();
+
+	@Override
+	public void ack() {
+		acks.incrementAndGet();
+	}
+
+	@Override
+	public void nack() {
+		nacks.incrementAndGet();
+	}
+
+	int replies() {
+		return acks.get() + nacks.get();
+	}
+
+}
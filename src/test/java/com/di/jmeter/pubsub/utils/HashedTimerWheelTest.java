@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class HashedTimerWheelTest {
+
+	// Eight one-millisecond ticks, so delays past 8 ms go round the wheel more than once
+	private final HashedTimerWheel timer = new HashedTimerWheel("test-timer", 1, TimeUnit.MILLISECONDS, 8);
+
+	@After
+	public void stopTimer() throws InterruptedException {
+		timer.stop();
+	}
+
+	@Test
+	public void firesEveryTaskAfterItsDelay() throws InterruptedException {
+		int tasks = 40;
+		final AtomicLongArray fired = new AtomicLongArray(tasks);
+		final CountDownLatch done = new CountDownLatch(tasks);
+		long[] due = new long[tasks];
+		for (int i = 0; i < tasks; i++) {
+			final int task = i;
+			long delay = TimeUnit.MILLISECONDS.toNanos(i * 3);
+			due[i] = System.nanoTime() + delay;
+			timer.schedule(() -> {
+				fired.set(task, System.nanoTime());
+				done.countDown();
+			}, delay, TimeUnit.NANOSECONDS);
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < tasks; i++) {
+			assertTrue("Task " + i + " fired early", fired.get(i) - due[i] >= 0);
+		}
+	}
+
+	@Test
+	public void keepsRunningAfterAFailingTask() throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(1);
+		timer.schedule(() -> {
+			throw new IllegalStateException("expected by the test");
+		}, 0, TimeUnit.MILLISECONDS);
+		timer.schedule(done::countDown, 5, TimeUnit.MILLISECONDS);
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void stopReturnsThePendingTasksWithoutRunningThem() throws InterruptedException {
+		final AtomicInteger runs = new AtomicInteger();
+		for (int i = 0; i < 3; i++) {
+			timer.schedule(runs::incrementAndGet, 1, TimeUnit.HOURS);
+		}
+		// Lets the worker move some of them into the wheel
+		Thread.sleep(20);
+		timer.schedule(runs::incrementAndGet, 1, TimeUnit.HOURS);
+		assertEquals(4, timer.stop());
+		assertEquals(0, runs.get());
+	}
+
+	@Test
+	public void flushRunsThePendingTasks() throws InterruptedException {
+		final AtomicInteger runs = new AtomicInteger();
+		for (int i = 0; i < 3; i++) {
+			timer.schedule(runs::incrementAndGet, 1, TimeUnit.HOURS);
+		}
+		Thread.sleep(20);
+		timer.schedule(runs::incrementAndGet, 1, TimeUnit.HOURS);
+		assertEquals(0, timer.flush(10, TimeUnit.SECONDS));
+		assertEquals(4, runs.get());
+		assertEquals(0, timer.stop());
+	}
+
+	@Test
+	public void flushDropsTheTasksLeftWhenTheTimeoutElapses() throws InterruptedException {
+		final AtomicInteger runs = new AtomicInteger();
+		for (int i = 0; i < 3; i++) {
+			timer.schedule(() -> {
+				runs.incrementAndGet();
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}, 1, TimeUnit.HOURS);
+		}
+		assertEquals(2, timer.flush(20, TimeUnit.MILLISECONDS));
+		assertEquals(1, runs.get());
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void keepsValuesBelow128Exact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int value = 0; value < 128; value++) {
+			histogram.record(value);
+		}
+		for (int value = 0; value < 128; value++) {
+			assertEquals(value, histogram.getValueAtPercentile((value + 0.5) * 100.0 / 128));
+		}
+		assertEquals(127, histogram.getMax());
+		assertEquals(63.5, histogram.getMean(), 1e-9);
+	}
+
+	@Test
+	public void bucketsAreContiguousAndCoverTheirValues() {
+		int previous = -1;
+		for (long value = 0; value < (1 << 20); value++) {
+			int index = LatencyHistogram.indexOf(value);
+			assertTrue("Index of " + value, index == previous || index == previous + 1);
+			if (index != previous) {
+				// The first value of a bucket is one past the highest of the previous bucket
+				assertEquals(value - 1, previous < 0 ? -1 : LatencyHistogram.highestEquivalentValue(previous));
+			}
+			assertTrue(LatencyHistogram.highestEquivalentValue(index) >= value);
+			previous = index;
+		}
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE));
+		assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.highestEquivalentValue(LatencyHistogram.BUCKETS - 1));
+	}
+
+	@Test
+	public void reportsPercentilesWithin2Percent() {
+		for (long value = 128; value < LatencyHistogram.MAX_VALUE / 2; value = value * 3 / 2 + 7) {
+			LatencyHistogram histogram = new LatencyHistogram();
+			histogram.record(value);
+			histogram.record(2 * value);
+			long reported = histogram.getValueAtPercentile(50);
+			assertTrue(value + " reported as " + reported, reported >= value && reported - value <= value / 50);
+			assertEquals(2 * value, histogram.getValueAtPercentile(100));
+		}
+	}
+
+	@Test
+	public void clampsValuesOutsideTheRange() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		assertEquals(0, histogram.getValueAtPercentile(100));
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+		assertEquals(LatencyHistogram.MAX_VALUE, histogram.getValueAtPercentile(100));
+		assertEquals(2, histogram.getCount());
+	}
+
+	@Test
+	public void drainsAndAddsRecordedValues() {
+		LatencyHistogram source = new LatencyHistogram();
+		LatencyHistogram target = new LatencyHistogram();
+		source.record(10);
+		source.record(1000);
+		target.record(20);
+		source.drainInto(target);
+		assertEquals(0, source.getCount());
+		assertEquals(0, source.getMax());
+		assertEquals(0, source.getValueAtPercentile(100));
+		assertEquals(3, target.getCount());
+		assertEquals(1000, target.getMax());
+		assertEquals(20, target.getValueAtPercentile(50));
+		LatencyHistogram total = new LatencyHistogram();
+		total.add(target);
+		total.add(target);
+		assertEquals(3, target.getCount());
+		assertEquals(6, total.getCount());
+		assertEquals(target.getMean(), total.getMean(), 1e-9);
+		assertEquals(1000, total.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void countsEveryValueRecordedConcurrently() throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final int perThread = 100000;
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < perThread; i++) {
+					histogram.record(i % 1000);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(4 * perThread, histogram.getCount());
+		assertEquals(999, histogram.getMax());
+		assertEquals(499.5, histogram.getMean(), 1e-9);
+	}
+
+}
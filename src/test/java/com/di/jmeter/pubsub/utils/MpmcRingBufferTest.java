@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class MpmcRingBufferTest {
+
+	@Test
+	public void roundsCapacityUpToPowerOfTwoAndRefusesWhenFull() {
+		MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(5, MpmcRingBuffer.WAIT_PARK);
+		assertEquals(8, buffer.capacity());
+		for (int i = 0; i < 8; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(8));
+		assertEquals(8, buffer.size());
+		assertEquals(0, buffer.remainingCapacity());
+	}
+
+	@Test
+	public void pollsInFifoOrderAcrossWrapAround() {
+		MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(4, MpmcRingBuffer.WAIT_SPIN);
+		int next = 0;
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 3; i++) {
+				assertTrue(buffer.offer(round * 3 + i));
+			}
+			for (int i = 0; i < 3; i++) {
+				assertEquals(Integer.valueOf(next++), buffer.poll());
+			}
+		}
+		assertNull(buffer.poll());
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void timedPollReturnsNullWhenEmpty() throws InterruptedException {
+		MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(4, MpmcRingBuffer.WAIT_YIELD);
+		long start = System.nanoTime();
+		assertNull(buffer.poll(20, TimeUnit.MILLISECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+	}
+
+	@Test
+	public void iteratesInOrderWithoutConsuming() {
+		MpmcRingBuffer<Integer> buffer = filled(1, 2, 3);
+		assertEquals(Arrays.asList(1, 2, 3), toList(buffer));
+		assertEquals("[1, 2, 3]", buffer.toString());
+		assertTrue(buffer.contains(2));
+		assertTrue(buffer.containsAll(Arrays.asList(1, 3)));
+		assertFalse(buffer.contains(4));
+		assertEquals(3, buffer.size());
+	}
+
+	@Test
+	public void removedElementsAreSkippedByPollPeekAndIteration() {
+		MpmcRingBuffer<Integer> buffer = filled(1, 2, 3, 4);
+		assertTrue(buffer.remove(Integer.valueOf(1)));
+		assertTrue(buffer.remove(Integer.valueOf(3)));
+		assertFalse(buffer.remove(Integer.valueOf(3)));
+		assertEquals(Integer.valueOf(2), buffer.peek());
+		assertEquals(Arrays.asList(2, 4), toList(buffer));
+		assertEquals(Integer.valueOf(2), buffer.poll());
+		assertEquals(Integer.valueOf(4), buffer.poll());
+		assertNull(buffer.poll());
+		assertNull(buffer.peek());
+	}
+
+	@Test
+	public void iteratorRemoveTakesOutTheLastReturnedElement() {
+		MpmcRingBuffer<Integer> buffer = filled(1, 2, 3);
+		Iterator<Integer> iterator = buffer.iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next() == 2) {
+				iterator.remove();
+			}
+		}
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(2, buffer.drainTo(drained));
+		assertEquals(Arrays.asList(1, 3), drained);
+	}
+
+	@Test
+	public void drainToHonoursTheLimit() {
+		MpmcRingBuffer<Integer> buffer = filled(1, 2, 3, 4, 5);
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(2, buffer.drainTo(drained, 2));
+		assertEquals(Arrays.asList(1, 2), drained);
+		assertEquals(3, buffer.size());
+	}
+
+	@Test
+	public void conservesElementsUnderConcurrentProducersAndConsumers() throws InterruptedException {
+		for (String waitStrategy : new String[] { MpmcRingBuffer.WAIT_SPIN, MpmcRingBuffer.WAIT_YIELD,
+				MpmcRingBuffer.WAIT_PARK }) {
+			final MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(64, waitStrategy);
+			QueueConservation.run(4, 4, 5000, value -> {
+				buffer.put(value);
+				return true;
+			}, () -> buffer.poll(10, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	private static MpmcRingBuffer<Integer> filled(Integer... values) {
+		MpmcRingBuffer<Integer> buffer = new MpmcRingBuffer<>(8, MpmcRingBuffer.WAIT_PARK);
+		for (Integer value : values) {
+			assertTrue(buffer.offer(value));
+		}
+		return buffer;
+	}
+
+	private static List<Integer> toList(Iterable<Integer> values) {
+		List<Integer> list = new ArrayList<>();
+		for (Integer value : values) {
+			list.add(value);
+		}
+		return list;
+	}
+
+}
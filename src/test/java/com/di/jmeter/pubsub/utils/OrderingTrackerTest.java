@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.google.pubsub.v1.PubsubMessage;
+
+public class OrderingTrackerTest {
+
+	private static PubsubMessage message(String key, long sequence) {
+		return PubsubMessage.newBuilder().setOrderingKey(key)
+				.putAttributes(MessageAttributes.KEY_SEQUENCE, Long.toString(sequence)).build();
+	}
+
+	@Test
+	public void tellsLateFillsFromRedeliveries() {
+		OrderingTracker tracker = new OrderingTracker();
+		for (long sequence : new long[] { 0, 1, 4, 2, 4, 1, 5, 3 }) {
+			tracker.record(message("a", sequence));
+		}
+		tracker.record(message("b", 0));
+		// Ignored without ordering key or key sequence
+		tracker.record(PubsubMessage.newBuilder().putAttributes(MessageAttributes.KEY_SEQUENCE, "7").build());
+		tracker.record(PubsubMessage.newBuilder().setOrderingKey("a").build());
+		assertEquals(2, tracker.getOutOfOrder());
+		assertEquals(2, tracker.getDuplicates());
+		assertEquals(
+				"keys=2 messages=9 inOrder=4 outOfOrder=2 duplicates=2 gaps=1 skippedSequences=0 messagesPerKey=1..8",
+				tracker.summary());
+	}
+
+	@Test
+	public void keepsSequencesThatNeverArriveSkipped() {
+		OrderingTracker tracker = new OrderingTracker();
+		for (long sequence : new long[] { 0, 3, 1, 7 }) {
+			tracker.record(message("a", sequence));
+		}
+		assertEquals(
+				"keys=1 messages=4 inOrder=1 outOfOrder=1 duplicates=0 gaps=2 skippedSequences=4 messagesPerKey=4..4",
+				tracker.summary());
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.google.pubsub.v1.PubsubMessage;
+
+/**
+ * Multi-producer, multi-consumer check shared by the queue tests: every value
+ * offered is taken exactly once, nothing is lost or duplicated.
+ */
+final class QueueConservation {
+
+	static final String VALUE = "value";
+	private static final long TIMEOUT_MS = TimeUnit.SECONDS.toMillis(60);
+
+	interface Offer {
+		// Returns false when the value was refused, it is offered again
+		boolean offer(int value) throws InterruptedException;
+	}
+
+	interface Poll {
+		// Returns null when nothing arrived in time
+		Integer poll() throws InterruptedException;
+	}
+
+	private QueueConservation() {
+	}
+
+	static void run(int producers, int consumers, final int perProducer, final Offer offer, final Poll poll)
+			throws InterruptedException {
+		final int total = producers * perProducer;
+		final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+		final AtomicInteger taken = new AtomicInteger();
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			final int first = p * perProducer;
+			threads.add(new Thread(() -> {
+				try {
+					for (int i = first; i < first + perProducer; i++) {
+						while (!offer.offer(i)) {
+							Thread.yield();
+						}
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			}, "producer-" + p));
+		}
+		for (int c = 0; c < consumers; c++) {
+			threads.add(new Thread(() -> {
+				try {
+					while (taken.get() < total && failure.get() == null) {
+						Integer value = poll.poll();
+						if (value != null) {
+							seen.incrementAndGet(value);
+							taken.incrementAndGet();
+						}
+					}
+				} catch (Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			}, "consumer-" + c));
+		}
+		for (Thread thread : threads) {
+			thread.setDaemon(true);
+			thread.start();
+		}
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		for (Thread thread : threads) {
+			thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+			assertFalse("Timed out with " + taken.get() + " of " + total + " taken", thread.isAlive());
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		assertEquals(total, taken.get());
+		for (int i = 0; i < total; i++) {
+			if (seen.get(i) != 1) {
+				fail("Value " + i + " was taken " + seen.get(i) + " times");
+			}
+		}
+	}
+
+	static ReceivedMessage message(int value) {
+		return new ReceivedMessage(PubsubMessage.newBuilder().putAttributes(VALUE, Integer.toString(value)).build());
+	}
+
+	static Integer value(ReceivedMessage message) {
+		return message == null ? null : Integer.valueOf(message.getAttribute(VALUE));
+	}
+
+}
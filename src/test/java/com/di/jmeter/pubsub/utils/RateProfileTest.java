@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RateProfileTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private RateProfile load(String... lines) throws IOException {
+		File file = folder.newFile();
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+		return RateProfile.load(file.getPath());
+	}
+
+	// Sends the engine makes over the whole profile: at 0 if the rate starts positive, then at every next send
+	private static long sends(RateProfile profile) {
+		long sends = 0;
+		for (long at = profile.rateAt(0) > 0 ? 0 : profile.nextSendAfter(0); at >= 0; at = profile.nextSendAfter(at)) {
+			sends++;
+		}
+		return sends;
+	}
+
+	@Test
+	public void spacesSendsEvenlyAtAConstantRate() {
+		RateProfile profile = RateProfile.constant(100);
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(10), profile.nextSendAfter(0), 1);
+		assertEquals(TimeUnit.SECONDS.toNanos(5) + TimeUnit.MILLISECONDS.toNanos(10),
+				profile.nextSendAfter(TimeUnit.SECONDS.toNanos(5)), 1);
+		assertEquals(Long.MAX_VALUE, profile.getDuration());
+	}
+
+	@Test
+	public void sendsTheIntegralOfARampFromZero() throws IOException {
+		RateProfile profile = load("# ramp", "60,0,1000");
+		assertEquals(0, profile.rateAt(0), 0);
+		assertEquals(500, profile.rateAt(TimeUnit.SECONDS.toNanos(30)), 1e-6);
+		// The first send is due once the area under the ramp reaches one message, sqrt(2 / (1000 / 60)) s in
+		assertEquals(Math.sqrt(2 / (1000.0 / 60)) * 1e9, profile.nextSendAfter(0), 1000);
+		assertEquals(30000, sends(profile), 1);
+	}
+
+	@Test
+	public void carriesTheRemainderOfALowStepIntoASpike() throws IOException {
+		RateProfile profile = load("10,1", "1,1000");
+		assertEquals(TimeUnit.SECONDS.toNanos(11), profile.getDuration());
+		assertEquals(1011, sends(profile), 1);
+		assertEquals(-1, profile.rateAt(TimeUnit.SECONDS.toNanos(11)), 0);
+		assertEquals(-1, profile.nextSendAfter(TimeUnit.SECONDS.toNanos(11) - 1));
+	}
+
+	@Test
+	public void skipsSegmentsWithoutTraffic() throws IOException {
+		RateProfile profile = load("5,0", "1,10");
+		assertEquals(TimeUnit.SECONDS.toNanos(5) + TimeUnit.MILLISECONDS.toNanos(100), profile.nextSendAfter(0), 1);
+		assertEquals(10, sends(profile), 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeRates() throws IOException {
+		load("10,-1");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsAnEmptyProfile() throws IOException {
+		load("# nothing");
+	}
+
+}
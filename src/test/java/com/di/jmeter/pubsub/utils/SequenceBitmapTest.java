@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SequenceBitmapTest {
+
+	private static SequenceBitmap of(long... sequences) {
+		SequenceBitmap bitmap = new SequenceBitmap();
+		for (long sequence : sequences) {
+			bitmap.add(sequence);
+		}
+		return bitmap;
+	}
+
+	@Test
+	public void listsMissingAndReceivedRanges() {
+		SequenceBitmap bitmap = of(10, 0, 1, 2, 5, 7, 8);
+		List<String> missing = new ArrayList<>();
+		assertEquals(3, bitmap.missingRanges(missing, 10));
+		assertEquals(Arrays.asList("3-4", "6", "9"), missing);
+		List<String> received = new ArrayList<>();
+		assertEquals(4, bitmap.receivedRanges(received, 10));
+		assertEquals(Arrays.asList("0-2", "5", "7-8", "10"), received);
+		assertEquals(4, bitmap.getMissing());
+		assertEquals(10, bitmap.getMaxSequence());
+	}
+
+	@Test
+	public void countsEveryRangeBeyondTheLimit() {
+		SequenceBitmap bitmap = of(0, 2, 4, 6, 8);
+		List<String> missing = new ArrayList<>();
+		assertEquals(4, bitmap.missingRanges(missing, 2));
+		assertEquals(Arrays.asList("1", "3"), missing);
+	}
+
+	@Test
+	public void hasNoRangesWhenEmpty() {
+		SequenceBitmap bitmap = new SequenceBitmap();
+		List<String> ranges = new ArrayList<>();
+		assertEquals(0, bitmap.missingRanges(ranges, 10));
+		assertEquals(0, bitmap.receivedRanges(ranges, 10));
+		assertTrue(ranges.isEmpty());
+		assertEquals(0, bitmap.getMissing());
+	}
+
+	@Test
+	public void countsDuplicatesAndReorderDistance() {
+		SequenceBitmap bitmap = of(0, 5, 3);
+		assertFalse(bitmap.add(5));
+		assertFalse(bitmap.add(0));
+		assertTrue(bitmap.add(1));
+		assertEquals(4, bitmap.getReceived());
+		assertEquals(2, bitmap.getDuplicates());
+		assertEquals(4, bitmap.getMaxReorder());
+	}
+
+	@Test
+	public void collapsesFullContainersAndKeepsTheirRanges() {
+		SequenceBitmap bitmap = new SequenceBitmap();
+		for (long sequence = 65535; sequence >= 0; sequence--) {
+			assertTrue(bitmap.add(sequence));
+		}
+		bitmap.add(70000);
+		assertTrue(bitmap.contains(0));
+		assertTrue(bitmap.contains(65535));
+		assertFalse(bitmap.contains(65536));
+		assertFalse(bitmap.add(12345));
+		assertEquals(1, bitmap.getDuplicates());
+		List<String> missing = new ArrayList<>();
+		assertEquals(1, bitmap.missingRanges(missing, 10));
+		assertEquals(Arrays.asList("65536-69999"), missing);
+		List<String> received = new ArrayList<>();
+		assertEquals(2, bitmap.receivedRanges(received, 10));
+		assertEquals(Arrays.asList("0-65535", "70000"), received);
+	}
+
+	@Test
+	public void spansContainersNothingArrivedIn() {
+		SequenceBitmap bitmap = of(0, 3L * 65536 + 1);
+		List<String> missing = new ArrayList<>();
+		assertEquals(1, bitmap.missingRanges(missing, 10));
+		assertEquals(Arrays.asList("1-196608"), missing);
+		assertEquals(3L * 65536, bitmap.getMissing());
+	}
+
+	@Test
+	public void visitsReceivedSequencesInAscendingOrder() {
+		SequenceBitmap bitmap = new SequenceBitmap();
+		for (long sequence = 65535; sequence >= 0; sequence--) {
+			bitmap.add(sequence);
+		}
+		bitmap.add(200000);
+		bitmap.add(65537);
+		final List<Long> visited = new ArrayList<>();
+		bitmap.forEach(visited::add);
+		assertEquals(65538, visited.size());
+		for (int i = 0; i < 65536; i++) {
+			assertEquals(i, visited.get(i).longValue());
+		}
+		assertEquals(Arrays.asList(65537L, 200000L), visited.subList(65536, 65538));
+		assertFalse(bitmap.contains(-1));
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.api.core.ApiFutures;
+import com.google.pubsub.v1.PubsubMessage;
+
+public class SequenceTrackerTest {
+
+	private static PubsubMessage message(String publisherId, long sequence) {
+		return PubsubMessage.newBuilder().putAttributes(MessageAttributes.PUBLISHER_ID, publisherId)
+				.putAttributes(MessageAttributes.SEQUENCE, Long.toString(sequence)).build();
+	}
+
+	@After
+	public void clearFailures() {
+		SequenceTracker.clearPublishFailures();
+	}
+
+	@Test
+	public void separatesFailedPublishesFromLostMessages() {
+		SequenceTracker tracker = new SequenceTracker();
+		for (long sequence : new long[] { 0, 1, 3, 6 }) {
+			tracker.record(message("p", sequence));
+		}
+		SequenceTracker.recordPublishFailure(message("p", 2));
+		SequenceTracker.trackPublish(ApiFutures.immediateFailedFuture(new IllegalStateException("expected by the test")),
+				message("p", 4));
+		SequenceTracker.trackPublish(ApiFutures.immediateFuture("id"), message("p", 5));
+		// Beyond the highest sequence received, so not counted as missing either
+		SequenceTracker.recordPublishFailure(message("p", 9));
+		assertEquals("publishers=1 received=4 missing=3 neverPublished=2 lost=1 duplicates=0 maxReorder=0",
+				tracker.summary());
+		assertEquals("failed=3 sequences=[2, 4, 9]", SequenceTracker.describePublishFailures("p"));
+		assertTrue(tracker.report(), tracker.report().contains("missingRanges=[2, 4-5]"));
+		assertNull(SequenceTracker.describePublishFailures("other"));
+	}
+
+}
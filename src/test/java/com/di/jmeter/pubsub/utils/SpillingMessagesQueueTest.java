@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+
+public class SpillingMessagesQueueTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private final List<SpillingMessagesQueue> queues = new ArrayList<>();
+
+	@After
+	public void closeQueues() {
+		for (SpillingMessagesQueue queue : queues) {
+			queue.close();
+		}
+	}
+
+	// A budget of one byte keeps a single message in memory, every further one is spilled
+	private SpillingMessagesQueue newQueue(long maxMemoryBytes, boolean spill) throws IOException {
+		SpillingMessagesQueue queue = new SpillingMessagesQueue(MessagesQueue.IMPLEMENTATION_LINKED, 100000,
+				MpmcRingBuffer.WAIT_PARK, maxMemoryBytes, spill ? folder.getRoot().toPath() : null, 0, null);
+		queues.add(queue);
+		return queue;
+	}
+
+	@Test
+	public void refusesOverTheByteBudgetWithoutSpillDirectory() throws IOException {
+		SpillingMessagesQueue queue = newQueue(1, false);
+		assertTrue(queue.offer(QueueConservation.message(0)));
+		assertFalse(queue.offer(QueueConservation.message(1)));
+		assertEquals(1, queue.getSize());
+	}
+
+	@Test
+	public void keepsArrivalOrderAcrossTheSpill() throws IOException, InterruptedException {
+		SpillingMessagesQueue queue = newQueue(1, true);
+		for (int i = 0; i < 100; i++) {
+			assertTrue(queue.offer(QueueConservation.message(i)));
+		}
+		assertEquals(100, queue.getSize());
+		assertEquals(Integer.valueOf(0), QueueConservation.value(queue.take()));
+		// Memory is empty again but older messages are on disk, so this one must queue behind them
+		assertTrue(queue.offer(QueueConservation.message(100)));
+		List<ReceivedMessage> drained = new ArrayList<>();
+		assertEquals(10, queue.drainTo(drained, 10));
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Integer.valueOf(i + 1), QueueConservation.value(drained.get(i)));
+		}
+		for (int i = 11; i <= 100; i++) {
+			assertEquals(Integer.valueOf(i), QueueConservation.value(queue.poll(1, TimeUnit.SECONDS)));
+		}
+		assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+		assertTrue(queue.summary(), queue.summary().contains("spilledMessages=100 "));
+	}
+
+	@Test
+	public void restoresSpilledMessagesAndMetadata() throws IOException, InterruptedException {
+		SpillingMessagesQueue queue = newQueue(1, true);
+		PubsubMessage full = PubsubMessage.newBuilder().setMessageId("full").setData(ByteString.copyFromUtf8("payload"))
+				.putAttributes("key", "value").build();
+		PubsubMessage metadata = PubsubMessage.newBuilder().setMessageId("metadata")
+				.setData(ByteString.copyFromUtf8("dropped")).putAttributes("kept", "yes").putAttributes("other", "no").build();
+		CountingAckReplyConsumer consumer = new CountingAckReplyConsumer();
+		ReceivedMessage first = QueueConservation.message(0);
+		ReceivedMessage second = new ReceivedMessage(full, consumer);
+		ReceivedMessage third = ReceivedMessage.metadataOnly(metadata, null, new String[] { "kept" });
+		assertTrue(queue.offer(first));
+		assertTrue(queue.offer(second));
+		assertTrue(queue.offer(third));
+		assertEquals(first, queue.take());
+		ReceivedMessage restored = queue.take();
+		assertEquals(full, restored.getMessage());
+		assertEquals(second.getReceiveNanos(), restored.getReceiveNanos());
+		assertEquals(second.getReceiveEpochMicros(), restored.getReceiveEpochMicros());
+		assertTrue(restored.isAckPending());
+		restored.reply(true);
+		assertEquals(1, consumer.acks.get());
+		restored = queue.take();
+		assertTrue(restored.isMetadataOnly());
+		assertEquals("metadata", restored.getMessageId());
+		assertEquals(7, restored.getSize());
+		assertEquals("yes", restored.getAttribute("kept"));
+		assertNull(restored.getAttribute("other"));
+		assertFalse(restored.isAckPending());
+	}
+
+	@Test
+	public void closeNacksSpilledMessagesWaitingForTheirAck() throws IOException {
+		SpillingMessagesQueue queue = newQueue(1, true);
+		CountingAckReplyConsumer consumer = new CountingAckReplyConsumer();
+		for (int i = 0; i < 5; i++) {
+			assertTrue(queue.offer(new ReceivedMessage(QueueConservation.message(i).getMessage(), consumer)));
+		}
+		queue.close();
+		// The message held in memory is the receiver's to reply to
+		assertEquals(4, consumer.nacks.get());
+		assertEquals(0, consumer.acks.get());
+		assertEquals(1, queue.getSize());
+	}
+
+	@Test
+	public void wakesAWaitingConsumerOnOffer() throws Exception {
+		final SpillingMessagesQueue queue = newQueue(1, true);
+		final CountDownLatch polling = new CountDownLatch(1);
+		final AtomicReference<ReceivedMessage> received = new AtomicReference<>();
+		Thread consumer = new Thread(() -> {
+			try {
+				polling.countDown();
+				received.set(queue.poll(30, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		consumer.start();
+		polling.await();
+		Thread.sleep(100);
+		long start = System.nanoTime();
+		assertTrue(queue.offer(QueueConservation.message(1)));
+		consumer.join(TimeUnit.SECONDS.toMillis(5));
+		assertFalse(consumer.isAlive());
+		assertNotNull(received.get());
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+	}
+
+	@Test
+	public void keepsEachProducersOrderAcrossTheSpill() throws InterruptedException, IOException {
+		final SpillingMessagesQueue queue = newQueue(2000, true);
+		final int producers = 4;
+		final int perProducer = 5000;
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			final int first = p * perProducer;
+			threads.add(new Thread(() -> {
+				for (int i = first; i < first + perProducer; i++) {
+					queue.offer(QueueConservation.message(i));
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		int[] last = new int[producers];
+		for (int p = 0; p < producers; p++) {
+			last[p] = p * perProducer - 1;
+		}
+		for (int taken = 0; taken < producers * perProducer; taken++) {
+			ReceivedMessage message = queue.poll(10, TimeUnit.SECONDS);
+			assertNotNull("Only " + taken + " messages taken", message);
+			int value = QueueConservation.value(message);
+			int producer = value / perProducer;
+			assertEquals("Producer " + producer + " out of order", last[producer] + 1, value);
+			last[producer] = value;
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void conservesMessagesUnderConcurrentProducersAndConsumers() throws InterruptedException, IOException {
+		final SpillingMessagesQueue queue = newQueue(2000, true);
+		QueueConservation.run(4, 4, 5000, value -> queue.offer(QueueConservation.message(value)),
+				() -> QueueConservation.value(queue.poll(10, TimeUnit.MILLISECONDS)));
+		assertFalse(queue.summary(), queue.summary().startsWith("spilledMessages=0 "));
+	}
+
+}
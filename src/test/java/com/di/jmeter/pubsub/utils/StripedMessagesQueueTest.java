@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.di.jmeter.pubsub.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class StripedMessagesQueueTest {
+
+	private static final String KEY = "key";
+
+	private static ReceivedMessage keyed(int value, String key) {
+		return new ReceivedMessage(QueueConservation.message(value).getMessage().toBuilder().putAttributes(KEY, key).build());
+	}
+
+	@Test
+	public void splitsTheCapacityOverTheStripes() {
+		StripedMessagesQueue queue = new StripedMessagesQueue(MessagesQueue.IMPLEMENTATION_LINKED, 7, MpmcRingBuffer.WAIT_PARK,
+				4, null);
+		assertEquals(4, queue.getStripeCount());
+		// Round-robin moves on to the next stripe with room, so the rounded-up capacity is usable
+		for (int i = 0; i < 8; i++) {
+			assertTrue(queue.offer(QueueConservation.message(i)));
+		}
+		assertFalse(queue.offer(QueueConservation.message(8)));
+		assertEquals(8, queue.getSize());
+	}
+
+	@Test
+	public void sendsEqualAttributeValuesToOneStripe() throws InterruptedException {
+		StripedMessagesQueue queue = new StripedMessagesQueue(MessagesQueue.IMPLEMENTATION_LINKED, 8, MpmcRingBuffer.WAIT_PARK,
+				4, KEY);
+		assertTrue(queue.offer(keyed(0, "a")));
+		assertTrue(queue.offer(keyed(1, "a")));
+		// The stripe of "a" holds two messages and is full, the others stay empty
+		assertFalse(queue.offer(keyed(2, "a")));
+		// Messages without the attribute are spread round-robin
+		assertTrue(queue.offer(QueueConservation.message(3)));
+		List<ReceivedMessage> drained = new ArrayList<>();
+		assertEquals(3, queue.drainTo(drained, 10));
+		List<Integer> values = new ArrayList<>();
+		for (ReceivedMessage message : drained) {
+			values.add(QueueConservation.value(message));
+		}
+		assertTrue(values.indexOf(0) < values.indexOf(1));
+	}
+
+	@Test
+	public void aConsumerStealsFromEveryStripe() throws InterruptedException {
+		StripedMessagesQueue queue = new StripedMessagesQueue(MessagesQueue.IMPLEMENTATION_RING, 64, MpmcRingBuffer.WAIT_PARK,
+				4, null);
+		Set<Integer> values = new HashSet<>();
+		for (int i = 0; i < 20; i++) {
+			assertTrue(queue.offer(QueueConservation.message(i)));
+		}
+		for (int i = 0; i < 20; i++) {
+			ReceivedMessage message = queue.poll(0, TimeUnit.NANOSECONDS);
+			assertNotNull(message);
+			values.add(QueueConservation.value(message));
+		}
+		assertEquals(20, values.size());
+		assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+		assertEquals(0, queue.getSize());
+	}
+
+	@Test
+	public void anOfferWakesParkedConsumers() throws InterruptedException {
+		final StripedMessagesQueue queue = new StripedMessagesQueue(MessagesQueue.IMPLEMENTATION_RING, 64,
+				MpmcRingBuffer.WAIT_PARK, 4, null);
+		final int consumers = 4;
+		final CountDownLatch polling = new CountDownLatch(consumers);
+		final AtomicInteger received = new AtomicInteger();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < consumers; i++) {
+			threads.add(new Thread(() -> {
+				try {
+					polling.countDown();
+					if (queue.poll(30, TimeUnit.SECONDS) != null) {
+						received.incrementAndGet();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		polling.await();
+		Thread.sleep(100);
+		for (int i = 0; i < consumers; i++) {
+			assertTrue(queue.offer(QueueConservation.message(i)));
+		}
+		for (Thread thread : threads) {
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+			assertFalse(thread.isAlive());
+		}
+		assertEquals(consumers, received.get());
+	}
+
+	@Test
+	public void timedPollReturnsNullWhenNothingArrives() throws InterruptedException {
+		StripedMessagesQueue queue = new StripedMessagesQueue(MessagesQueue.IMPLEMENTATION_LINKED, 8, MpmcRingBuffer.WAIT_PARK,
+				2, null);
+		long start = System.nanoTime();
+		assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+	}
+
+	@Test
+	public void conservesMessagesUnderConcurrentProducersAndConsumers() throws InterruptedException {
+		for (String hashAttribute : new String[] { null, QueueConservation.VALUE }) {
+			for (String implementation : new String[] { MessagesQueue.IMPLEMENTATION_LINKED, MessagesQueue.IMPLEMENTATION_RING }) {
+				final StripedMessagesQueue queue = new StripedMessagesQueue(implementation, 256, MpmcRingBuffer.WAIT_PARK, 4,
+						hashAttribute);
+				QueueConservation.run(4, 4, 5000, value -> queue.offer(QueueConservation.message(value)),
+						() -> QueueConservation.value(queue.poll(10, TimeUnit.MILLISECONDS)));
+			}
+		}
+	}
+
+}